@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.Random;
+
+/**
+ * Generated benchmark inputs, one per kind of text the matcher has a distinct cost profile for.
+ * The same kind and size always produce the same text, so results stay comparable between runs.
+ */
+public enum Corpus {
+    
+    /** Objects and arrays nested a few hundred levels deep. */
+    NESTED_JSON(DelimiterProfile.DEFAULT) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int depth = 1 + random.nextInt(300);
+            for (int i = 0; i < depth; i++) {
+                out.append(i % 2 == 0 ? "{\"k" : "[").append(i % 2 == 0 ? random.nextInt(100) + "\": " : "");
+            }
+            out.append("\"v\\\"").append(random.nextInt(1000)).append('"');
+            for (int i = depth - 1; i >= 0; i--) {
+                out.append(i % 2 == 0 ? '}' : ']');
+            }
+            out.append(",\n");
+        }
+    },
+    
+    /** Bundled JavaScript without line breaks. */
+    MINIFIED_JS(DelimiterProfile.DEFAULT) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("function f").append(n).append("(a,b){var s=\"x(\"+a[").append(n % 7)
+                .append("];if(b){return [s,{k:'v'},`t${a}`].map(function(x){return x/2})}return/[)]/.test(s)?1:0};");
+        }
+    },
+    
+    /** Python with docstrings and triple-quoted strings. */
+    PYTHON_TRIPLE_QUOTES(DelimiterProfile.DEFAULT) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("def f").append(n).append("(a, b=(1, 2)):\n")
+                .append("    \"\"\"Returns the [first] item of a (or b).\n\n    \"quoted\" text {").append(n).append("}\n    \"\"\"\n")
+                .append("    sql = '''SELECT (a) FROM t WHERE b = 'x' '''\n")
+                .append("    return {'a': a[0], \"b\": b}  # comment (\n\n");
+        }
+    },
+    
+    /** C with more comment than code. */
+    COMMENTED_C(DelimiterProfile.DEFAULT) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("/*\n * Computes f").append(n).append(" (see [1]) for {a, b}.\n * Returns 0 when \"a\" isn't set.\n */\n")
+                .append("int f").append(n).append("(int *a, int b) {\n")
+                .append("    // TODO: handle a[b] == 0 (it's rare)\n")
+                .append("    return a[b] + g(b, '\\'', \"/* not a comment */\");\n}\n\n");
+        }
+    },
+    
+    /** English text with contractions and possessives that never close a quote. */
+    PROSE_APOSTROPHES(DelimiterProfile.PROSE) {
+        private final String[] words = {
+            "don't", "it's", "the", "students'", "can't", "(really)", "we'll", "a", "rock 'n' roll", "data", "O'Brien's", "[sic]"
+        };
+        
+        @Override
+        void append(StringBuilder out, Random random) {
+            int count = 8 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                out.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            out.append(random.nextInt(4) == 0 ? "'quoted'.\n" : ".\n");
+        }
+    };
+    
+    private final DelimiterProfile profile;
+    
+    Corpus(DelimiterProfile profile) {
+        this.profile = profile;
+    }
+    
+    public DelimiterProfile getProfile() {
+        return profile;
+    }
+    
+    /**
+     * Returns text of exactly the given length.
+     */
+    public String generate(int length) {
+        Random random = new Random(ordinal() * 31L + 1);
+        StringBuilder out = new StringBuilder(length + 4096);
+        while (out.length() < length) {
+            append(out, random);
+        }
+        out.setLength(length);
+        return out.toString();
+    }
+    
+    abstract void append(StringBuilder out, Random random);
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans, bracket-only scans and incremental rescans over each {@link Corpus} from 1 KB to 50 MB.
+ * Scores are scans per second; dividing by the size gives the throughput in bytes, and the gc profiler
+ * (on by default, see build.gradle) adds the allocation rate per scan. Bracket-only scans of 1 MB and
+ * more run on the common fork-join pool, so their scores depend on the number of cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ScanBenchmark {
+    
+    private static final int COLOR_COUNT = 20;
+    
+    @Param
+    public Corpus corpus;
+    
+    @Param({"1024", "65536", "1048576", "16777216", "52428800"})
+    public int size;
+    
+    private String text;
+    private DelimiterMatcher.ScanResult result;
+    // The text with a bracket typed in the middle, and where
+    private String editedText;
+    private int editOffset;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = corpus.generate(size);
+        result = scan(text, ScanMode.FULL);
+        editOffset = text.length() / 2;
+        editedText = text.substring(0, editOffset) + "(" + text.substring(editOffset);
+    }
+    
+    @Benchmark
+    public DelimiterMatcher.ScanResult scan() {
+        return scan(text, ScanMode.FULL);
+    }
+    
+    @Benchmark
+    public DelimiterMatcher.ScanResult scanBracketsOnly() {
+        return scan(text, ScanMode.BRACKETS_ONLY);
+    }
+    
+    @Benchmark
+    public DelimiterMatcher.ScanResult rescan() {
+        return DelimiterMatcher.rescan(result, editedText, editOffset, editOffset, editOffset + 1);
+    }
+    
+    @Benchmark
+    public DelimiterIndex buildIndex() {
+        return DelimiterIndex.build(result.getPairs(), CancellationCheck.NONE);
+    }
+    
+    private DelimiterMatcher.ScanResult scan(CharSequence text, ScanMode mode) {
+        return DelimiterMatcher.scan(text, corpus.getProfile(), mode, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line check for unbalanced brackets and unterminated strings and comments in source trees,
+ * for use as a pre-commit hook or CI step. Files are picked and scanned by their extension, see
+ * {@link DelimiterProfile#forExtension}, on a pool of worker threads, and the issues are written as
+ * JSON or as compiler-style lines. Exits with 1 when issues were found and 2 on bad arguments.
+ */
+public class BatchScanner {
+    
+    private static final String USAGE = "Usage: colorful-delimiter [--format json|text] [--threads N] [--max-size BYTES] "
+        + "[--stats] <file or directory>...";
+    
+    // Larger files are usually generated or vendored
+    private static final long DEFAULT_MAX_SIZE = 16L << 20;
+    // Smaller files are read into a reused buffer; mapping them costs more than copying
+    private static final int MAP_THRESHOLD = 64 << 10;
+    // Files with a NUL byte this close to the start are taken for binary
+    private static final int BINARY_PROBE_LENGTH = 8 << 10;
+    
+    private static final ThreadLocal<ByteBuffer> READ_BUFFERS = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MAP_THRESHOLD));
+    
+    private boolean json = true;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long maxSize = DEFAULT_MAX_SIZE;
+    private boolean stats;
+    private final List<Path> roots = new ArrayList<>();
+    
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+    
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        BatchScanner scanner = new BatchScanner();
+        String error = scanner.parse(args);
+        if (error != null) {
+            err.println(error);
+            err.println(USAGE);
+            return 2;
+        }
+        return scanner.scan(out, err);
+    }
+    
+    private String parse(String[] args) {
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--format") && i + 1 < args.length) {
+                    String format = args[++i];
+                    if (!format.equals("json") && !format.equals("text")) {
+                        return "Unknown format: " + format;
+                    }
+                    json = format.equals("json");
+                } else if (arg.equals("--threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                    if (threads < 1) {
+                        return "Thread count must be positive";
+                    }
+                } else if (arg.equals("--max-size") && i + 1 < args.length) {
+                    maxSize = Long.parseLong(args[++i]);
+                    if (maxSize < 0) {
+                        return "Maximum size must not be negative";
+                    }
+                    // Files are mapped as a single buffer, which can't hold more than 2 GB
+                    maxSize = Math.min(maxSize, Integer.MAX_VALUE);
+                } else if (arg.equals("--stats")) {
+                    stats = true;
+                } else if (arg.startsWith("--")) {
+                    return "Unknown option: " + arg;
+                } else {
+                    roots.add(Paths.get(arg));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return "Not a number: " + e.getMessage();
+        }
+        return roots.isEmpty() ? "No files or directories given" : null;
+    }
+    
+    private int scan(PrintStream out, PrintStream err) {
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Delimiter scanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<FileReport> reports = new ArrayList<>();
+        try {
+            // Files are scanned while the rest of the tree is still being walked
+            List<Future<FileReport>> futures = new ArrayList<>();
+            for (Path root : roots) {
+                walk(root, executor, futures, reports);
+            }
+            for (Future<FileReport> future : futures) {
+                reports.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 2;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        reports.sort(Comparator.comparing(report -> report.path.toString()));
+        
+        Totals totals = new Totals(reports, System.nanoTime() - startNanos, threads);
+        if (json) {
+            writeJson(reports, totals, out);
+        } else {
+            writeText(reports, out);
+        }
+        err.println(totals.summary());
+        if (stats) {
+            err.print(ScanMetrics.getInstance().report());
+        }
+        out.flush();
+        return totals.issues > 0 ? 1 : 0;
+    }
+    
+    private void walk(Path root, ExecutorService executor, List<Future<FileReport>> futures, List<FileReport> failures) {
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    // .git, .idea and the like; a hidden directory given on the command line is still scanned
+                    Path name = dir.getFileName();
+                    boolean hidden = !dir.equals(root) && name != null && name.toString().startsWith(".");
+                    return hidden ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String extension = extensionOf(file);
+                    DelimiterProfile profile = extension != null ? DelimiterProfile.forExtension(extension) : null;
+                    if (attributes.isRegularFile() && profile != null) {
+                        futures.add(executor.submit(() -> scanFile(file, extension, profile)));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    failures.add(FileReport.skipped(file, "unreadable: " + e.getMessage()));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failures.add(FileReport.skipped(root, "unreadable: " + e.getMessage()));
+        }
+    }
+    
+    private static String extensionOf(Path file) {
+        Path name = file.getFileName();
+        String fileName = name != null ? name.toString() : "";
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : null;
+    }
+    
+    private FileReport scanFile(Path file, String extension, DelimiterProfile profile) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > maxSize) {
+                return FileReport.skipped(file, "larger than " + maxSize + " bytes");
+            }
+            ByteBuffer bytes;
+            if (size < MAP_THRESHOLD) {
+                bytes = READ_BUFFERS.get();
+                bytes.clear().limit((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Read until full, files may be returned in pieces
+                }
+                bytes.flip();
+            } else {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            
+            ByteText text = new ByteText(bytes);
+            if (text.isBinary()) {
+                return FileReport.skipped(file, "binary");
+            }
+            ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.SCAN, extension, text.length());
+            DelimiterMatcher.ScanResult result = DelimiterMatcher.scanForIssues(text, profile, 1, CancellationCheck.NONE);
+            sample.finish(result);
+            // Locations are resolved now, while a reused buffer still holds this file
+            return FileReport.scanned(file, size, text, result.getIssues());
+        } catch (IOException e) {
+            return FileReport.skipped(file, "unreadable: " + e.getMessage());
+        }
+    }
+    
+    private static void writeText(List<FileReport> reports, PrintStream out) {
+        for (FileReport report : reports) {
+            if (report.skipReason != null) {
+                continue;
+            }
+            for (IssueLocation issue : report.issues) {
+                out.println(report.path + ":" + issue.line + ":" + issue.column + ": "
+                    + issue.kind.getId().replace('-', ' ') + " " + issue.delimiter);
+            }
+        }
+    }
+    
+    private static void writeJson(List<FileReport> reports, Totals totals, PrintStream out) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"files\": [");
+        String separator = "\n";
+        for (FileReport report : reports) {
+            if (report.skipReason != null || report.issues.isEmpty()) {
+                continue;
+            }
+            json.append(separator).append("    {\"path\": ").append(quote(report.path.toString())).append(", \"issues\": [");
+            String issueSeparator = "\n";
+            for (IssueLocation issue : report.issues) {
+                json.append(issueSeparator).append("      {\"kind\": ").append(quote(issue.kind.getId()))
+                    .append(", \"delimiter\": ").append(quote(String.valueOf(issue.delimiter)))
+                    .append(", \"line\": ").append(issue.line)
+                    .append(", \"column\": ").append(issue.column)
+                    .append(", \"offset\": ").append(issue.offset).append('}');
+                issueSeparator = ",\n";
+            }
+            json.append("\n    ]}");
+            separator = ",\n";
+        }
+        json.append(separator.equals("\n") ? "" : "\n  ").append("],\n  \"skipped\": [");
+        separator = "\n";
+        for (FileReport report : reports) {
+            if (report.skipReason != null) {
+                json.append(separator).append("    {\"path\": ").append(quote(report.path.toString()))
+                    .append(", \"reason\": ").append(quote(report.skipReason)).append('}');
+                separator = ",\n";
+            }
+        }
+        json.append(separator.equals("\n") ? "" : "\n  ").append("],\n  \"stats\": {")
+            .append("\"files\": ").append(totals.files)
+            .append(", \"bytes\": ").append(totals.bytes)
+            .append(", \"issues\": ").append(totals.issues)
+            .append(", \"skipped\": ").append(totals.skipped)
+            .append(", \"threads\": ").append(totals.threads)
+            .append(", \"millis\": ").append(totals.nanos / 1_000_000)
+            .append(", \"filesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", totals.filesPerSecond()))
+            .append(", \"megabytesPerSecond\": ").append(String.format(Locale.ROOT, "%.1f", totals.megabytesPerSecond()))
+            .append("}\n}");
+        out.println(json);
+    }
+    
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                quoted.append('\\').append(ch);
+            } else if (ch < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) ch));
+            } else {
+                quoted.append(ch);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+    
+    /**
+     * File bytes as characters for the matcher. Delimiters are all ASCII and no byte of a multi-byte
+     * UTF-8 character is, so offsets are byte offsets and nothing needs decoding.
+     */
+    static class ByteText implements CharSequence {
+        // Stands for every byte of a multi-byte character, which mostly belong to letters
+        private static final char NON_ASCII = '\u00E0';
+        
+        private final ByteBuffer bytes;
+        
+        ByteText(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+        
+        boolean isBinary() {
+            int probe = Math.min(bytes.limit(), BINARY_PROBE_LENGTH);
+            for (int i = 0; i < probe; i++) {
+                if (bytes.get(i) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // Continuation bytes of a multi-byte character don't start a column
+        boolean startsCharacter(int index) {
+            return (bytes.get(index) & 0xC0) != 0x80;
+        }
+        
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+        
+        @Override
+        public char charAt(int index) {
+            byte b = bytes.get(index);
+            return b >= 0 ? (char) b : NON_ASCII;
+        }
+        
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            ByteBuffer slice = bytes.duplicate();
+            slice.limit(end).position(start);
+            return new ByteText(slice.slice());
+        }
+        
+        @Override
+        public String toString() {
+            return StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+        }
+    }
+    
+    private static class IssueLocation {
+        final DelimiterIssue.Kind kind;
+        final char delimiter;
+        final int offset;
+        final int line;
+        final int column;
+        
+        IssueLocation(DelimiterIssue.Kind kind, char delimiter, int offset, int line, int column) {
+            this.kind = kind;
+            this.delimiter = delimiter;
+            this.offset = offset;
+            this.line = line;
+            this.column = column;
+        }
+    }
+    
+    private static class FileReport {
+        final Path path;
+        final long size;
+        final List<IssueLocation> issues;
+        final String skipReason;
+        
+        private FileReport(Path path, long size, List<IssueLocation> issues, String skipReason) {
+            this.path = path;
+            this.size = size;
+            this.issues = issues;
+            this.skipReason = skipReason;
+        }
+        
+        static FileReport skipped(Path path, String reason) {
+            return new FileReport(path, 0, new ArrayList<>(), reason);
+        }
+        
+        // Issues come in offset order, so lines and columns are counted in one pass
+        static FileReport scanned(Path path, long size, ByteText text, List<DelimiterIssue> issues) {
+            List<IssueLocation> locations = new ArrayList<>(issues.size());
+            int line = 1;
+            int column = 1;
+            int position = 0;
+            for (DelimiterIssue issue : issues) {
+                int offset = issue.getOffset();
+                for (; position < offset; position++) {
+                    if (text.charAt(position) == '\n') {
+                        line++;
+                        column = 1;
+                    } else if (text.startsCharacter(position)) {
+                        column++;
+                    }
+                }
+                locations.add(new IssueLocation(issue.getKind(), text.charAt(offset), offset, line, column));
+            }
+            return new FileReport(path, size, locations, null);
+        }
+    }
+    
+    private static class Totals {
+        int files;
+        long bytes;
+        int issues;
+        int filesWithIssues;
+        int skipped;
+        final long nanos;
+        final int threads;
+        
+        Totals(List<FileReport> reports, long nanos, int threads) {
+            for (FileReport report : reports) {
+                if (report.skipReason != null) {
+                    skipped++;
+                    continue;
+                }
+                files++;
+                bytes += report.size;
+                issues += report.issues.size();
+                filesWithIssues += report.issues.isEmpty() ? 0 : 1;
+            }
+            this.nanos = nanos;
+            this.threads = threads;
+        }
+        
+        double filesPerSecond() {
+            return files / Math.max(nanos / 1e9, 1e-9);
+        }
+        
+        double megabytesPerSecond() {
+            return bytes / (double) (1 << 20) / Math.max(nanos / 1e9, 1e-9);
+        }
+        
+        String summary() {
+            return String.format(Locale.ROOT, "Scanned %d files (%.1f MB) in %.2f s on %d threads: %.0f files/s, %.1f MB/s; "
+                + "%d issues in %d files, %d skipped", files, bytes / (double) (1 << 20), nanos / 1e9, threads,
+                filesPerSecond(), megabytesPerSecond(), issues, filesWithIssues, skipped);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * Called every few thousand characters during a scan, so the caller can abort the scan by throwing
+ * an unchecked exception, for example when the text has been edited again in the meantime.
+ */
+public interface CancellationCheck {
+    
+    CancellationCheck NONE = () -> { };
+    
+    void checkCanceled();
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.Arrays;
+
+/**
+ * Offset-sorted list of the colored delimiter characters of a scan, so the delimiters
+ * inside any text range can be found with a binary search.
+ */
+public class DelimiterIndex {
+    
+    // Longest delimiter token (triple quotes)
+    public static final int MAX_LENGTH = 3;
+    
+    private final int[] offsets;
+    // Packed as (length << 16 | colorIndex)
+    private final int[] infos;
+    
+    private DelimiterIndex(int[] offsets, int[] infos) {
+        this.offsets = offsets;
+        this.infos = infos;
+    }
+    
+    public static DelimiterIndex build(DelimiterPairs pairs, CancellationCheck cancellation) {
+        // Packed as (offset << 32 | info) so a primitive sort orders by offset
+        long[] entries = new long[pairs.size() * 2];
+        int count = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            if ((i & 0xFFF) == 0) {
+                cancellation.checkCanceled();
+            }
+            int length = pairs.getQuoteLength(i);
+            int info = (length << 16) | pairs.getColorIndex(i);
+            entries[count++] = ((long) pairs.getOpenOffset(i) << 32) | info;
+            entries[count++] = ((long) (pairs.getCloseOffset(i) - length + 1) << 32) | info;
+        }
+        return sorted(entries, count);
+    }
+    
+    // Entries packed as (offset << 32 | length << 16 | colorIndex)
+    static DelimiterIndex sorted(long[] entries, int count) {
+        Arrays.sort(entries, 0, count);
+        
+        int[] offsets = new int[count];
+        int[] infos = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = (int) (entries[i] >>> 32);
+            infos[i] = (int) entries[i];
+        }
+        return new DelimiterIndex(offsets, infos);
+    }
+    
+    public int size() {
+        return offsets.length;
+    }
+    
+    public int getOffset(int index) {
+        return offsets[index];
+    }
+    
+    public int getLength(int index) {
+        return infos[index] >>> 16;
+    }
+    
+    public int getColorIndex(int index) {
+        return infos[index] & 0xFFFF;
+    }
+    
+    /**
+     * Returns the index of the first delimiter starting at or after the offset.
+     */
+    public int firstAtOrAfter(int offset) {
+        int low = 0;
+        int high = offsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Checks that an edit replacing [dirtyStart, oldDirtyEnd) with [dirtyStart, newDirtyEnd) left every
+     * delimiter of [start, end) outside the edited text as it was in the previous index.
+     */
+    public boolean sameOutsideEdit(DelimiterIndex previous, int start, int end, int dirtyStart, int oldDirtyEnd, int newDirtyEnd) {
+        int delta = newDirtyEnd - oldDirtyEnd;
+        return containsOutsideEdit(this, previous, start, end, dirtyStart, newDirtyEnd, -delta)
+            && containsOutsideEdit(previous, this, start, end - delta, dirtyStart, oldDirtyEnd, delta);
+    }
+    
+    // Whether every delimiter of the source in [start, end), except the edited ones, is also in the target
+    private static boolean containsOutsideEdit(DelimiterIndex source, DelimiterIndex target, int start, int end,
+                                               int dirtyStart, int dirtyEnd, int delta) {
+        for (int i = source.firstAtOrAfter(start); i < source.size() && source.offsets[i] < end; i++) {
+            int offset = source.offsets[i];
+            if (offset + source.getLength(i) > dirtyStart && offset < dirtyEnd) {
+                continue;
+            }
+            int mapped = offset < dirtyStart ? offset : offset + delta;
+            int match = target.firstAtOrAfter(mapped);
+            if (match == target.size() || target.offsets[match] != mapped || target.infos[match] != source.infos[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * A delimiter the matcher couldn't pair, found by {@link DelimiterMatcher#scanForIssues}.
+ */
+public class DelimiterIssue {
+    
+    public enum Kind {
+        UNMATCHED_OPENER("unmatched-opener"),
+        UNMATCHED_CLOSER("unmatched-closer"),
+        UNTERMINATED_STRING("unterminated-string"),
+        UNTERMINATED_COMMENT("unterminated-comment");
+        
+        private final String id;
+        
+        Kind(String id) {
+            this.id = id;
+        }
+        
+        public String getId() {
+            return id;
+        }
+    }
+    
+    private final Kind kind;
+    private final int offset;
+    
+    public DelimiterIssue(Kind kind, int offset) {
+        this.kind = kind;
+        this.offset = offset;
+    }
+    
+    public Kind getKind() { return kind; }
+    
+    /**
+     * Offset of the bracket, or of the opener of the string or comment.
+     */
+    public int getOffset() { return offset; }
+}
\ No newline at end of file
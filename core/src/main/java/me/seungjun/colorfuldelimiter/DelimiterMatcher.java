@@ -0,0 +1,1380 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.function.IntFunction;
+
+public class DelimiterMatcher {
+    
+    private static final char[] QUOTE_CHARS = {'\'', '"', '`'};
+    
+    private static final int STATE_CODE = 0;
+    private static final int STATE_LINE_COMMENT = 1;
+    private static final int STATE_BLOCK_COMMENT = 2;
+    private static final int STATE_STRING = 3;
+    private static final int STATE_LONG_STRING = 4;
+    
+    private static final int BLOCK_COMMENT_KIND = 1;
+    // After the block comment and quote kinds, see quoteKind
+    private static final int RAW_STRING_KIND = 1 << 7;
+    private static final int VERBATIM_STRING_KIND = 1 << 8;
+    private static final int LONG_STRING_KIND = 1 << 9;
+    
+    // Characters between scanner checkpoints, used to resume scanning after an edit
+    private static final int CHECKPOINT_INTERVAL = 2048;
+    
+    // Characters past the end of a token that a lexer may have looked at to decide where it ends
+    private static final int TOKEN_LOOKAHEAD = 64;
+    
+    // Characters, tokens or pairs processed between checks whether the highlighting pass was canceled
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+    static final int NO_DEPTH_CAP = Integer.MAX_VALUE;
+    
+    public static class DelimiterPair {
+        private final int openOffset;
+        private final int closeOffset;
+        private final char delimiterType;
+        private final int colorIndex;
+        private final boolean isQuote;
+        private final int quoteLength;
+        
+        public DelimiterPair(int openOffset, int closeOffset, char delimiterType, int colorIndex) {
+            this.openOffset = openOffset;
+            this.closeOffset = closeOffset;
+            this.delimiterType = delimiterType;
+            this.colorIndex = colorIndex;
+            this.isQuote = false;
+            this.quoteLength = 1;
+        }
+        
+        public DelimiterPair(int openOffset, int closeOffset, char delimiterType, int colorIndex, int quoteLength) {
+            this.openOffset = openOffset;
+            this.closeOffset = closeOffset;
+            this.delimiterType = delimiterType;
+            this.colorIndex = colorIndex;
+            this.isQuote = true;
+            this.quoteLength = quoteLength;
+        }
+        
+        public int getOpenOffset() { return openOffset; }
+        public int getCloseOffset() { return closeOffset; }
+        public char getDelimiterType() { return delimiterType; }
+        public int getColorIndex() { return colorIndex; }
+        public boolean isQuote() { return isQuote; }
+        public int getQuoteLength() { return quoteLength; }
+    }
+    
+    public static class ScanResult {
+        private final DelimiterPairs pairs;
+        private final SkipRangeIndex commentRanges;
+        private final SkipRangeIndex stringRanges;
+        private final List<Checkpoint> checkpoints;
+        private final int disabledKinds;
+        private final boolean fromTokens;
+        private final int changedStart;
+        private final int changedEnd;
+        private final ScanMode mode;
+        private final DelimiterProfile profile;
+        private final int colorCount;
+        private final CancellationCheck cancellation;
+        private volatile DelimiterIndex delimiterIndex;
+        private volatile NestingIndex nestingIndex;
+        private List<DelimiterIssue> issues = Collections.emptyList();
+        // Where a scan for the visible range stopped, and the start of that range, see scanVisible
+        private int stoppedAt = -1;
+        private int visibleStart;
+        
+        ScanResult(DelimiterPairs pairs, SkipRangeIndex commentRanges, SkipRangeIndex stringRanges,
+                   List<Checkpoint> checkpoints, int disabledKinds, boolean fromTokens, int changedStart, int changedEnd,
+                   ScanMode mode, DelimiterProfile profile, int colorCount, CancellationCheck cancellation) {
+            this.pairs = pairs;
+            this.commentRanges = commentRanges;
+            this.stringRanges = stringRanges;
+            this.checkpoints = checkpoints;
+            this.disabledKinds = disabledKinds;
+            this.fromTokens = fromTokens;
+            this.changedStart = changedStart;
+            this.changedEnd = changedEnd;
+            this.mode = mode;
+            this.profile = profile;
+            this.colorCount = colorCount;
+            this.cancellation = cancellation;
+        }
+        
+        public DelimiterPairs getPairs() { return pairs; }
+        public SkipRangeIndex getCommentRanges() { return commentRanges; }
+        public SkipRangeIndex getStringRanges() { return stringRanges; }
+        public ScanMode getMode() { return mode; }
+        public DelimiterProfile getProfile() { return profile; }
+        public int getColorCount() { return colorCount; }
+        
+        /**
+         * Whether the scan read a lexer's tokens, see {@link #scanTokens}. Only such a scan can be updated by
+         * {@link #rescanTokens}, and only a scan of the characters by {@link #rescan}.
+         */
+        public boolean isFromTokens() { return fromTokens; }
+        
+        /**
+         * Whether the scan went on to the end of the text, see {@link #scanVisible}.
+         */
+        public boolean isComplete() { return stoppedAt < 0; }
+        
+        /**
+         * Whether the delimiters in [start, end) have the pairs and colors that a scan of the whole text gives them.
+         */
+        public boolean isFinalIn(int start, int end) {
+            return stoppedAt < 0 || start >= visibleStart && end <= stoppedAt;
+        }
+        
+        /**
+         * Issues in offset order, only collected by {@link #scanForIssues}.
+         */
+        public List<DelimiterIssue> getIssues() { return issues; }
+        
+        /**
+         * Range of the text, in which pairs may differ from the scan this one was updated from.
+         * Covers the whole text for a full scan.
+         */
+        public int getChangedStart() { return changedStart; }
+        public int getChangedEnd() { return changedEnd; }
+        
+        public DelimiterIndex getDelimiterIndex() {
+            DelimiterIndex index = delimiterIndex;
+            if (index == null) {
+                index = DelimiterIndex.build(pairs, cancellation);
+                delimiterIndex = index;
+            }
+            return index;
+        }
+        
+        public boolean hasDelimiterIndex() {
+            return delimiterIndex != null;
+        }
+        
+        public NestingIndex getNestingIndex() {
+            NestingIndex index = nestingIndex;
+            if (index == null) {
+                index = NestingIndex.build(pairs, cancellation);
+                nestingIndex = index;
+            }
+            return index;
+        }
+        
+        public boolean hasNestingIndex() {
+            return nestingIndex != null;
+        }
+        
+        // Last checkpoint at or before the offset, or null
+        Checkpoint checkpointBefore(int offset) {
+            int count = checkpointsUpTo(offset);
+            return count == 0 ? null : checkpoints.get(count - 1);
+        }
+        
+        // Number of checkpoints at or before the offset, which is also the index of the first one after it
+        int checkpointsUpTo(int offset) {
+            int low = 0;
+            int high = checkpoints.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (checkpoints.get(mid).offset <= offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+    
+    /**
+     * Snapshot of the scanner at a code position (outside any comment or string),
+     * enough to resume scanning from there.
+     */
+    static class Checkpoint {
+        final int offset;
+        final int pairCount;
+        final int disabledKinds;
+        final StackSnapshot parentheses;
+        final StackSnapshot curlyBraces;
+        final StackSnapshot squareBrackets;
+        final int[] quoteDepths;
+        
+        Checkpoint(int offset, int pairCount, int disabledKinds, StackSnapshot parentheses, StackSnapshot curlyBraces,
+                   StackSnapshot squareBrackets, int[] quoteDepths) {
+            this.offset = offset;
+            this.pairCount = pairCount;
+            this.disabledKinds = disabledKinds;
+            this.parentheses = parentheses;
+            this.curlyBraces = curlyBraces;
+            this.squareBrackets = squareBrackets;
+            this.quoteDepths = quoteDepths;
+        }
+    }
+    
+    /**
+     * Returns the matching pairs of the text, with color indices below the given number of colors.
+     */
+    public static List<DelimiterPair> findMatchingDelimiters(CharSequence text, int colorCount) {
+        return scan(text, colorCount).getPairs().asList();
+    }
+    
+    public static List<DelimiterPair> findMatchingDelimiters(char[] text, int colorCount) {
+        return findMatchingDelimiters(CharBuffer.wrap(text), colorCount);
+    }
+    
+    /**
+     * Finds comments, strings, bracket pairs and quote pairs in a single pass over the text.
+     * A block comment or string that never closes is not treated as one: the scan resumes right
+     * after its opener with that kind disabled, since no later opener of the same kind can close either.
+     */
+    public static ScanResult scan(CharSequence text, int colorCount) {
+        return scan(text, DelimiterProfile.DEFAULT, ScanMode.FULL, NO_DEPTH_CAP, NO_DEADLINE, colorCount, CancellationCheck.NONE);
+    }
+    
+    /**
+     * Scans the whole text like {@link #scan} and also collects its {@link DelimiterIssue}s: brackets
+     * without a partner, and strings and block comments that never close.
+     */
+    public static ScanResult scanForIssues(CharSequence text, DelimiterProfile profile, int colorCount,
+                                           CancellationCheck cancellation) {
+        Scanner scanner = new Scanner(text, profile, ScanMode.FULL, NO_DEPTH_CAP, NO_DEADLINE, colorCount, cancellation);
+        scanner.issues = new ArrayList<>();
+        scanner.run(0, null);
+        scanner.reportUnclosed(scanner.parentheses);
+        scanner.reportUnclosed(scanner.curlyBraces);
+        scanner.reportUnclosed(scanner.squareBrackets);
+        scanner.issues.sort(Comparator.comparingInt(DelimiterIssue::getOffset));
+        ScanResult result = scanner.result();
+        result.issues = scanner.issues;
+        return result;
+    }
+    
+    /**
+     * Scans in the given mode, throwing {@link BudgetExceededException} when the deadline
+     * ({@link System#nanoTime()}) passes first.
+     */
+    static ScanResult scan(CharSequence text, DelimiterProfile profile, ScanMode mode, int depthCap, long deadline,
+                           int colorCount, CancellationCheck cancellation) {
+        if (mode == ScanMode.BRACKETS_ONLY && ParallelBracketMatcher.isWorthwhile(text.length())) {
+            // Bracket-only scans are never given a deadline, see ScanPolicy
+            DelimiterPairs pairs = ParallelBracketMatcher.match(text, NO_DEPTH_CAP, colorCount, cancellation);
+            SkipRangeIndex none = new SkipRangeIndex.Builder().build();
+            return new ScanResult(pairs, none, none, Collections.emptyList(), 0, false, 0, text.length(), mode, profile,
+                colorCount, cancellation);
+        }
+        
+        Scanner scanner = new Scanner(text, profile, mode, depthCap, deadline, colorCount, cancellation);
+        if (mode == ScanMode.BRACKETS_ONLY) {
+            scanner.runBrackets();
+        } else if (mode != ScanMode.OFF) {
+            scanner.run(0, null);
+        }
+        return scanner.result();
+    }
+    
+    /**
+     * Finds the same pairs as {@link #scan} from a lexer's token stream instead of re-deriving comments
+     * and strings from the characters. Only single-character code tokens are checked for brackets, and
+     * quotes are taken from the edges of string literal tokens. Checkpoints are only taken at tokens where
+     * {@link DelimiterTokenStream#isRestartPoint} holds, so that the result can be updated by {@link #rescanTokens}.
+     */
+    public static ScanResult scanTokens(CharSequence text, DelimiterTokenStream tokens, int colorCount) {
+        return scanTokens(text, tokens, ScanMode.FULL, NO_DEPTH_CAP, NO_DEADLINE, colorCount, CancellationCheck.NONE);
+    }
+    
+    static ScanResult scanTokens(CharSequence text, DelimiterTokenStream tokens, ScanMode mode, int depthCap, long deadline,
+                                 int colorCount, CancellationCheck cancellation) {
+        if (!mode.skipsCommentsAndStrings()) {
+            return scan(text, DelimiterProfile.DEFAULT, mode, depthCap, deadline, colorCount, cancellation);
+        }
+        Scanner scanner = new Scanner(text, DelimiterProfile.DEFAULT, mode, depthCap, deadline, colorCount, cancellation);
+        scanner.fromTokens = true;
+        scanner.runTokens(tokens, null);
+        return scanner.result();
+    }
+    
+    /**
+     * Scans like {@link #scan}, or like {@link #scanTokens} when tokens are given, but stops at the first
+     * position from {@code visibleEnd} on where every bracket opened from {@code visibleStart} on is closed.
+     * The delimiters in between then have the pairs and colors of a whole scan, see {@link ScanResult#isFinalIn},
+     * so they can be colored before {@link #finish} scans the rest.
+     */
+    static ScanResult scanVisible(CharSequence text, DelimiterProfile profile, DelimiterTokenStream tokens, ScanMode mode,
+                                  int depthCap, long deadline, int colorCount, CancellationCheck cancellation,
+                                  int visibleStart, int visibleEnd) {
+        if (!mode.skipsCommentsAndStrings()) {
+            return scan(text, profile, mode, depthCap, deadline, colorCount, cancellation);
+        }
+        Scanner scanner = new Scanner(text, tokens != null ? DelimiterProfile.DEFAULT : profile, mode, depthCap, deadline,
+            colorCount, cancellation);
+        scanner.visibleStart = visibleStart;
+        scanner.stopFrom = visibleEnd;
+        if (tokens != null) {
+            scanner.fromTokens = true;
+            scanner.runTokens(tokens, null);
+        } else {
+            scanner.run(0, null);
+        }
+        return scanner.result();
+    }
+    
+    /**
+     * Scans the rest of the text after {@link #scanVisible} stopped, from the checkpoint it stopped at.
+     * The token streams are only used when the stopped scan read tokens.
+     */
+    static ScanResult finish(ScanResult stopped, CharSequence text, IntFunction<DelimiterTokenStream> tokens, int depthCap,
+                             long deadline) {
+        if (stopped.isComplete()) {
+            return stopped;
+        }
+        Checkpoint resume = stopped.checkpoints.get(stopped.checkpoints.size() - 1);
+        Scanner scanner = new Scanner(text, stopped.profile, stopped.mode, depthCap, deadline, stopped.colorCount,
+            stopped.cancellation);
+        scanner.restore(stopped, resume);
+        if (stopped.fromTokens) {
+            scanner.fromTokens = true;
+            scanner.runTokens(tokens.apply(resume.offset), null);
+        } else {
+            scanner.run(resume.offset, null);
+        }
+        return scanner.result();
+    }
+    
+    /**
+     * Updates a previous scan after an edit that replaced [dirtyStart, oldDirtyEnd) of the old text
+     * with [dirtyStart, newDirtyEnd) of the new one. Scanning resumes from the last checkpoint before
+     * the edit and stops at the first checkpoint after it where the scanner state matches the previous
+     * scan again; the rest of the previous result is reused with shifted offsets. The new result has the
+     * delimiter profile, number of colors and cancellation check of the previous one.
+     */
+    public static ScanResult rescan(ScanResult previous, CharSequence text, int dirtyStart, int oldDirtyEnd, int newDirtyEnd) {
+        return rescan(previous, text, dirtyStart, oldDirtyEnd, newDirtyEnd, NO_DEADLINE);
+    }
+    
+    /**
+     * Rescans a full-mode result, throwing {@link BudgetExceededException} when the deadline passes first.
+     */
+    static ScanResult rescan(ScanResult previous, CharSequence text, int dirtyStart, int oldDirtyEnd, int newDirtyEnd, long deadline) {
+        // A disabled kind may find a closer after the edit, which changes the result before it
+        if (previous.mode != ScanMode.FULL || previous.disabledKinds != 0 || previous.fromTokens) {
+            return scan(text, previous.profile, ScanMode.FULL, NO_DEPTH_CAP, deadline, previous.colorCount, previous.cancellation);
+        }
+        
+        // Characters up to the profile's lookahead past a checkpoint were looked at before reaching it
+        Checkpoint resume = previous.checkpointBefore(dirtyStart - previous.profile.getLookahead());
+        if (resume == null) {
+            return scan(text, previous.profile, ScanMode.FULL, NO_DEPTH_CAP, deadline, previous.colorCount, previous.cancellation);
+        }
+        
+        // Most edits add or remove only a few pairs
+        Scanner scanner = new Scanner(text, previous.profile, ScanMode.FULL, NO_DEPTH_CAP, deadline, previous.colorCount,
+            previous.cancellation, previous.pairs.size() + 64);
+        scanner.restore(previous, resume);
+        
+        Convergence convergence = new Convergence(previous, dirtyStart, oldDirtyEnd, newDirtyEnd - oldDirtyEnd);
+        scanner.run(resume.offset, convergence);
+        return scanner.converged(previous, resume, convergence);
+    }
+    
+    /**
+     * Updates a previous scan of a lexer's tokens after an edit, like {@link #rescan}. The token streams
+     * start at the given offset, which is 0 or that of a token where the previous stream was at a restart
+     * point; the lexer is started over from the last checkpoint before the edit. A checkpoint after the
+     * edit only matches where the lexer is at a restart point again, so the tokens after it are the
+     * previous ones shifted.
+     */
+    public static ScanResult rescanTokens(ScanResult previous, CharSequence text, IntFunction<DelimiterTokenStream> tokens,
+                                          int dirtyStart, int oldDirtyEnd, int newDirtyEnd) {
+        return rescanTokens(previous, text, tokens, dirtyStart, oldDirtyEnd, newDirtyEnd, NO_DEADLINE);
+    }
+    
+    /**
+     * Rescans a full-mode token scan, throwing {@link BudgetExceededException} when the deadline passes first.
+     */
+    static ScanResult rescanTokens(ScanResult previous, CharSequence text, IntFunction<DelimiterTokenStream> tokens,
+                                   int dirtyStart, int oldDirtyEnd, int newDirtyEnd, long deadline) {
+        Checkpoint resume = previous.mode == ScanMode.FULL && previous.fromTokens
+            ? previous.checkpointBefore(dirtyStart - TOKEN_LOOKAHEAD) : null;
+        if (resume == null) {
+            return scanTokens(text, tokens.apply(0), ScanMode.FULL, NO_DEPTH_CAP, deadline, previous.colorCount,
+                previous.cancellation);
+        }
+        
+        Scanner scanner = new Scanner(text, DelimiterProfile.DEFAULT, ScanMode.FULL, NO_DEPTH_CAP, deadline,
+            previous.colorCount, previous.cancellation, previous.pairs.size() + 64);
+        scanner.fromTokens = true;
+        scanner.restore(previous, resume);
+        
+        Convergence convergence = new Convergence(previous, dirtyStart, oldDirtyEnd, newDirtyEnd - oldDirtyEnd);
+        scanner.runTokens(tokens.apply(resume.offset), convergence);
+        return scanner.converged(previous, resume, convergence);
+    }
+    
+    private static class Scanner {
+        private final CharSequence text;
+        private final int length;
+        private final DelimiterPairs pairs;
+        private final SkipRangeIndex.Builder commentRanges = new SkipRangeIndex.Builder();
+        private final SkipRangeIndex.Builder stringRanges = new SkipRangeIndex.Builder();
+        private final List<Checkpoint> checkpoints = new ArrayList<>();
+        
+        // Opening positions of the unclosed brackets; an opener's color is its depth in the stack
+        private final PositionStack parentheses = new PositionStack();
+        private final PositionStack curlyBraces = new PositionStack();
+        private final PositionStack squareBrackets = new PositionStack();
+        
+        // Number of non-empty strings seen so far for each quote character
+        private final int[] quoteDepths = new int[QUOTE_CHARS.length];
+        // End of the last line on which a string of each quote character failed to close
+        private final int[] failedLineEnds = new int[QUOTE_CHARS.length];
+        // Rescanning a line after a string failed to close on it depends on where the line ends,
+        // so the scan can't be resumed from, or matched against a previous scan, before that
+        private int resumableFrom;
+        // Last character read by a raw or long string check, which may look arbitrarily far ahead
+        private int readUpTo = -1;
+        private int disabledKinds;
+        private boolean fromTokens;
+        private int nextCheckpoint;
+        // Set by scanVisible, which stops once past stopFrom with every bracket opened from visibleStart on closed
+        private int visibleStart;
+        private int stopFrom = Integer.MAX_VALUE;
+        private int stoppedAt = -1;
+        private int changedStart;
+        private int changedEnd;
+        // Only collected for scanForIssues
+        private List<DelimiterIssue> issues;
+        
+        private final DelimiterProfile profile;
+        private final ScanMode mode;
+        // Brackets nested this deep or deeper are left uncolored
+        private final int depthCap;
+        private final long deadline;
+        private final int colorCount;
+        private final CancellationCheck cancellation;
+        
+        Scanner(CharSequence text, DelimiterProfile profile, ScanMode mode, int depthCap, long deadline, int colorCount,
+                CancellationCheck cancellation) {
+            // Rough guess from typical source code, to avoid most regrowing of the arrays
+            this(text, profile, mode, depthCap, deadline, colorCount, cancellation, text.length() / 32);
+        }
+        
+        Scanner(CharSequence text, DelimiterProfile profile, ScanMode mode, int depthCap, long deadline, int colorCount,
+                CancellationCheck cancellation, int pairCapacity) {
+            this.text = text;
+            this.length = text.length();
+            this.changedEnd = length;
+            this.pairs = new DelimiterPairs(Math.max(16, pairCapacity));
+            this.profile = profile;
+            this.mode = mode;
+            this.depthCap = mode == ScanMode.DEPTH_CAPPED ? depthCap : NO_DEPTH_CAP;
+            this.deadline = deadline;
+            this.colorCount = colorCount;
+            this.cancellation = cancellation;
+        }
+        
+        ScanResult result() {
+            ScanResult result = new ScanResult(pairs, commentRanges.build(), stringRanges.build(), checkpoints,
+                disabledKinds, fromTokens, changedStart, changedEnd, mode, profile, colorCount, cancellation);
+            result.stoppedAt = stoppedAt;
+            result.visibleStart = visibleStart;
+            return result;
+        }
+        
+        // Result of a rescan from the checkpoint, with the rest of the previous scan when it converged
+        ScanResult converged(ScanResult previous, Checkpoint resume, Convergence convergence) {
+            changedStart = resume.offset;
+            if (convergence.matched) {
+                boolean quoteColorsShifted = appendShifted(previous, convergence);
+                if (!quoteColorsShifted) {
+                    changedEnd = convergence.offset;
+                }
+            }
+            return result();
+        }
+        
+        private void checkCanceled() {
+            cancellation.checkCanceled();
+            if (deadline != NO_DEADLINE && System.nanoTime() - deadline > 0) {
+                throw new BudgetExceededException();
+            }
+        }
+        
+        /**
+         * Scans from a code position to the end of the text, or until the convergence target matches.
+         */
+        void run(int from, Convergence convergence) {
+            int state = STATE_CODE;
+            int tokenStart = 0;
+            int quoteIndex = 0;
+            int quoteLength = 0;
+            // Number of # around a raw string, or -1 for other strings
+            int rawHashes = -1;
+            // Number of = between the brackets of a long string
+            int longLevel = 0;
+            boolean verbatim = false;
+            boolean lineBounded = false;
+            
+            int i = from;
+            int nextCancelCheck = from;
+            while (true) {
+                if (i >= length) {
+                    if (state == STATE_LINE_COMMENT) {
+                        commentRanges.add(tokenStart, length);
+                    } else if (state == STATE_STRING && lineBounded) {
+                        // The last line ends without closing the string
+                        report(DelimiterIssue.Kind.UNTERMINATED_STRING, tokenStart);
+                        failedLineEnds[quoteIndex] = length;
+                        resumableFrom = length + 1;
+                        state = STATE_CODE;
+                        i = tokenStart + 1;
+                        continue;
+                    } else if (state != STATE_CODE) {
+                        report(state == STATE_BLOCK_COMMENT ? DelimiterIssue.Kind.UNTERMINATED_COMMENT
+                            : DelimiterIssue.Kind.UNTERMINATED_STRING,
+                            state == STATE_STRING && rawHashes >= 0 ? tokenStart - rawHashes - 1 : tokenStart);
+                        disabledKinds |= state == STATE_BLOCK_COMMENT ? BLOCK_COMMENT_KIND
+                            : state == STATE_LONG_STRING ? LONG_STRING_KIND
+                            : rawHashes >= 0 ? RAW_STRING_KIND
+                            : verbatim ? VERBATIM_STRING_KIND
+                            : quoteKind(quoteIndex, quoteLength);
+                        // Resume after the r prefix of a raw string, so the # after it are read again, and at
+                        // the opener of a comment or long string, which may still start a line comment or bracket
+                        i = state == STATE_BLOCK_COMMENT || state == STATE_LONG_STRING ? tokenStart
+                            : rawHashes >= 0 ? tokenStart - rawHashes
+                            : tokenStart + 1;
+                        state = STATE_CODE;
+                        dropCheckpointsAfter(i - 1);
+                        nextCancelCheck = i;
+                        // The previous scan had nothing disabled, so it can't match any more
+                        convergence = null;
+                        continue;
+                    }
+                    break;
+                }
+                
+                if (i >= nextCancelCheck) {
+                    checkCanceled();
+                    nextCancelCheck = i + CANCEL_CHECK_INTERVAL;
+                }
+                
+                char ch = text.charAt(i);
+                
+                // Inside comments and strings, runs of characters that can't end them are skipped in one go
+                if (state == STATE_LINE_COMMENT) {
+                    if (ch == '\n') {
+                        commentRanges.add(tokenStart, i);
+                        state = STATE_CODE;
+                        i++;
+                    } else {
+                        i = nextOf('\n', i + 1, Math.min(length, nextCancelCheck));
+                    }
+                    continue;
+                } else if (state == STATE_BLOCK_COMMENT) {
+                    char endChar = profile.getBlockCommentEndChar();
+                    if (ch != endChar) {
+                        i = nextOf(endChar, i + 1, Math.min(length, nextCancelCheck));
+                    } else if (profile.blockCommentEndAt(text, i) > 0) {
+                        int end = i + profile.blockCommentEndAt(text, i);
+                        commentRanges.add(tokenStart, end);
+                        state = STATE_CODE;
+                        i = end;
+                    } else {
+                        i++;
+                    }
+                    continue;
+                } else if (state == STATE_LONG_STRING) {
+                    if (ch != ']') {
+                        i = nextOf(']', i + 1, Math.min(length, nextCancelCheck));
+                    } else if (closesLongString(i, longLevel)) {
+                        int contentStart = tokenStart + longLevel + 2;
+                        if (i > contentStart) {
+                            stringRanges.add(contentStart, i);
+                        }
+                        state = STATE_CODE;
+                        i += longLevel + 2;
+                    } else {
+                        i++;
+                    }
+                    continue;
+                } else if (state == STATE_STRING) {
+                    char quoteChar = QUOTE_CHARS[quoteIndex];
+                    if (ch != quoteChar && ch != '\\' && ch != '\n') {
+                        i = nextInString(quoteChar, i + 1, Math.min(length, nextCancelCheck));
+                    } else if (ch == '\\' && rawHashes < 0 && !verbatim) {
+                        // Skipping the escaped character gives backslash runs the right parity
+                        i += 2;
+                    } else if (ch == '\n' && lineBounded) {
+                        // Not a string after all. No later quote of this kind on the line can close either,
+                        // so they aren't tried again and no character is visited more than twice.
+                        report(DelimiterIssue.Kind.UNTERMINATED_STRING, tokenStart);
+                        failedLineEnds[quoteIndex] = i;
+                        resumableFrom = Math.max(resumableFrom, i + 1);
+                        state = STATE_CODE;
+                        i = tokenStart + 1;
+                    } else if (ch == quoteChar && verbatim && i + 1 < length && text.charAt(i + 1) == quoteChar) {
+                        // Doubled quote inside a verbatim string
+                        i += 2;
+                    } else if (ch == quoteChar && isClosingQuote(i, ch, quoteLength, rawHashes)) {
+                        int contentStart = tokenStart + quoteLength;
+                        if (mode.pairsQuotes()) {
+                            int colorIndex = (quoteDepths[quoteIndex] + 10) % colorCount;
+                            pairs.addQuote(tokenStart, i + quoteLength - 1, quoteIndex, quoteLength, colorIndex);
+                        }
+                        if (i > contentStart) {
+                            // Empty strings have no content to exclude and don't advance the color
+                            stringRanges.add(contentStart, i);
+                            quoteDepths[quoteIndex]++;
+                        }
+                        state = STATE_CODE;
+                        i += quoteLength + Math.max(rawHashes, 0);
+                    } else {
+                        i++;
+                    }
+                    continue;
+                }
+                
+                if (i >= resumableFrom) {
+                    if (convergence != null && i >= convergence.offset) {
+                        if (i == convergence.offset && convergence.matches(this)) {
+                            return;
+                        }
+                        convergence.advancePast(i);
+                    }
+                    // Not where an earlier position read ahead to, since an edit here could change what started there
+                    if (i >= nextCheckpoint && i > readUpTo) {
+                        checkpoints.add(checkpoint(i));
+                        nextCheckpoint = i + CHECKPOINT_INTERVAL;
+                    }
+                    if (i >= stopFrom && i > readUpTo && closedSinceVisibleStart()) {
+                        stop(i);
+                        return;
+                    }
+                }
+                
+                int charClass = profile.charClass(ch);
+                if (charClass == 0) {
+                    // Stop at the convergence target, which may be any character
+                    int limit = Math.min(length, nextCancelCheck);
+                    if (convergence != null) {
+                        limit = Math.min(limit, convergence.offset);
+                    }
+                    i = nextCandidate(i + 1, limit);
+                    continue;
+                }
+                
+                boolean commentStart = (charClass & DelimiterProfile.COMMENT_START) != 0;
+                if (commentStart && (disabledKinds & BLOCK_COMMENT_KIND) == 0 && profile.blockCommentStartAt(text, i) > 0) {
+                    state = STATE_BLOCK_COMMENT;
+                    tokenStart = i;
+                    i += profile.blockCommentStartAt(text, i);
+                } else if (commentStart && profile.lineCommentAt(text, i) > 0) {
+                    state = STATE_LINE_COMMENT;
+                    tokenStart = i;
+                    i += profile.lineCommentAt(text, i);
+                } else if ((charClass & DelimiterProfile.RAW_STRING_PREFIX) != 0 && (disabledKinds & RAW_STRING_KIND) == 0
+                        && rawStringHashes(i) >= 0) {
+                    state = STATE_STRING;
+                    rawHashes = rawStringHashes(i);
+                    tokenStart = i + 1 + rawHashes;
+                    quoteIndex = quoteIndexOf(text.charAt(tokenStart));
+                    quoteLength = 1;
+                    verbatim = false;
+                    lineBounded = false;
+                    i = tokenStart + 1;
+                } else if ((charClass & DelimiterProfile.LONG_STRING_START) != 0 && (disabledKinds & LONG_STRING_KIND) == 0
+                        && longStringLevel(i) >= 0) {
+                    state = STATE_LONG_STRING;
+                    longLevel = longStringLevel(i);
+                    tokenStart = i;
+                    i += longLevel + 2;
+                } else if ((charClass & DelimiterProfile.QUOTE) != 0) {
+                    int index = quoteIndexOf(ch);
+                    int openLength = getQuoteLength(text, i, ch);
+                    boolean verbatimString = profile.hasVerbatimStrings() && ch == '"' && openLength == 1 && i > 0 && text.charAt(i - 1) == '@';
+                    int kind = verbatimString ? VERBATIM_STRING_KIND : quoteKind(index, openLength);
+                    boolean bounded = !verbatimString && profile.isLineBounded(ch, openLength);
+                    if ((disabledKinds & kind) == 0 && !(bounded && i < failedLineEnds[index]) && !isWordApostrophe(i, ch)) {
+                        state = STATE_STRING;
+                        tokenStart = i;
+                        quoteIndex = index;
+                        quoteLength = openLength;
+                        rawHashes = -1;
+                        verbatim = verbatimString;
+                        lineBounded = bounded;
+                        i += openLength;
+                    } else {
+                        i++;
+                    }
+                } else {
+                    matchBrace(ch, i);
+                    i++;
+                }
+            }
+        }
+        
+        // First position from the offset and below the limit whose character can start something, or the limit
+        private int nextCandidate(int offset, int limit) {
+            int i = offset;
+            while (i < limit && profile.charClass(text.charAt(i)) == 0) {
+                i++;
+            }
+            return i;
+        }
+        
+        private int nextOf(char target, int offset, int limit) {
+            int i = offset;
+            while (i < limit && text.charAt(i) != target) {
+                i++;
+            }
+            return i;
+        }
+        
+        // First position from the offset and below the limit that may end the string or escape a character, or the limit
+        private int nextInString(char quoteChar, int offset, int limit) {
+            int i = offset;
+            while (i < limit) {
+                char ch = text.charAt(i);
+                if (ch == quoteChar || ch == '\\' || ch == '\n') {
+                    break;
+                }
+                i++;
+            }
+            return i;
+        }
+        
+        // Number of # between the r prefix at the offset and the quote of a raw string, or -1
+        private int rawStringHashes(int offset) {
+            int prefixStart = offset;
+            if (offset > 0 && (text.charAt(offset - 1) == 'b' || text.charAt(offset - 1) == 'B')) {
+                prefixStart--;
+            }
+            if (prefixStart > 0 && isIdentifierChar(text.charAt(prefixStart - 1))) {
+                return -1;
+            }
+            int quote = offset + 1;
+            while (profile.hasHashedRawStrings() && quote < length && text.charAt(quote) == '#') {
+                quote++;
+            }
+            readUpTo = Math.max(readUpTo, quote);
+            if (quote >= length || !profile.isQuote(text.charAt(quote)) || text.charAt(quote) == '`') {
+                return -1;
+            }
+            return quote - offset - 1;
+        }
+        
+        // Number of = between the brackets of a long string opener at the offset, or -1
+        private int longStringLevel(int offset) {
+            int bracket = offset + 1;
+            while (bracket < length && text.charAt(bracket) == '=') {
+                bracket++;
+            }
+            readUpTo = Math.max(readUpTo, bracket);
+            return bracket < length && text.charAt(bracket) == '[' ? bracket - offset - 1 : -1;
+        }
+        
+        private boolean closesLongString(int position, int level) {
+            if (position + level + 1 >= length) {
+                return false;
+            }
+            for (int h = 1; h <= level; h++) {
+                if (text.charAt(position + h) != '=') {
+                    return false;
+                }
+            }
+            return text.charAt(position + level + 1) == ']';
+        }
+        
+        private boolean isWordApostrophe(int offset, char ch) {
+            return ch == '\'' && profile.hasWordApostrophes() && offset > 0 && Character.isLetterOrDigit(text.charAt(offset - 1));
+        }
+        
+        private boolean isClosingQuote(int position, char quoteChar, int quoteLength, int rawHashes) {
+            if (quoteLength == 3) {
+                return position + 2 < length
+                    && text.charAt(position + 1) == quoteChar
+                    && text.charAt(position + 2) == quoteChar;
+            }
+            for (int h = 1; h <= rawHashes; h++) {
+                if (position + h >= length || text.charAt(position + h) != '#') {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Matches brackets without looking for comments and strings, the one mode whose cost doesn't
+         * depend on what the text contains.
+         */
+        void runBrackets() {
+            for (int i = 0; i < length; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0) {
+                    checkCanceled();
+                }
+                matchBrace(text.charAt(i), i);
+            }
+        }
+        
+        /**
+         * Scans the tokens to the end of the text, or until the convergence target matches.
+         */
+        void runTokens(DelimiterTokenStream tokens, Convergence convergence) {
+            // Strings split by interpolated code: opening offset, quote index and quote length
+            List<int[]> openStrings = new ArrayList<>();
+            int commentStart = -1;
+            int stringStart = -1;
+            int end = 0;
+            int count = 0;
+            
+            for (; !tokens.atEnd(); tokens.advance()) {
+                if (++count % CANCEL_CHECK_INTERVAL == 0) {
+                    checkCanceled();
+                }
+                int kind = tokens.getKind();
+                int start = tokens.getStart();
+                
+                if (kind != DelimiterTokenStream.COMMENT && commentStart != -1) {
+                    commentRanges.add(commentStart, end);
+                    commentStart = -1;
+                }
+                if (kind != DelimiterTokenStream.STRING && stringStart != -1) {
+                    matchStringTokens(stringStart, end, openStrings);
+                    stringStart = -1;
+                }
+                
+                // Between comments and strings, where the lexer could also have been started
+                if (commentStart == -1 && stringStart == -1 && tokens.isRestartPoint()) {
+                    // Interpolated code is lexed in a state of its own, so strings still open here were never
+                    // closed; their quotes stay unpaired
+                    openStrings.clear();
+                    if (convergence != null && start >= convergence.offset) {
+                        if (start == convergence.offset && convergence.matches(this)) {
+                            return;
+                        }
+                        convergence.advancePast(start);
+                    }
+                    if (start >= nextCheckpoint) {
+                        checkpoints.add(checkpoint(start));
+                        nextCheckpoint = start + CHECKPOINT_INTERVAL;
+                    }
+                    if (start >= stopFrom && closedSinceVisibleStart()) {
+                        stop(start);
+                        return;
+                    }
+                }
+                
+                end = tokens.getEnd();
+                if (kind == DelimiterTokenStream.COMMENT) {
+                    if (commentStart == -1) {
+                        commentStart = start;
+                    }
+                } else if (kind == DelimiterTokenStream.STRING) {
+                    if (stringStart == -1) {
+                        stringStart = start;
+                    }
+                } else if (end - start == 1) {
+                    matchBrace(text.charAt(start), start);
+                }
+            }
+            
+            if (commentStart != -1) {
+                commentRanges.add(commentStart, end);
+            }
+            if (stringStart != -1) {
+                matchStringTokens(stringStart, end, openStrings);
+            }
+        }
+        
+        // Pairs the quotes at the edges of a run of string tokens
+        private void matchStringTokens(int start, int end, List<int[]> openStrings) {
+            // Skip prefixes such as r"", b'', f"", u8"" or @""
+            int open = start;
+            while (open < end && open - start < 3 && !isQuoteChar(text.charAt(open))) {
+                open++;
+            }
+            boolean opensString = open < end && isQuoteChar(text.charAt(open));
+            
+            if (opensString) {
+                char quoteChar = text.charAt(open);
+                int quoteLength = open + 3 <= end && getQuoteLength(text, open, quoteChar) == 3 ? 3 : 1;
+                int contentStart = open + quoteLength;
+                if (end - contentStart >= quoteLength && endsWithQuote(end, quoteChar, quoteLength)) {
+                    stringRanges.add(contentStart, end - quoteLength);
+                    addQuotePair(open, end - quoteLength, quoteIndexOf(quoteChar), quoteLength);
+                    return;
+                }
+            }
+            
+            // The rest of a string that was interrupted by interpolated code, possibly just its closing quote
+            if (!openStrings.isEmpty()) {
+                int[] openString = openStrings.get(openStrings.size() - 1);
+                char quoteChar = QUOTE_CHARS[openString[1]];
+                int quoteLength = openString[2];
+                boolean continues = open != start || end - start == quoteLength;
+                if (continues && end - start >= quoteLength && endsWithQuote(end, quoteChar, quoteLength)) {
+                    openStrings.remove(openStrings.size() - 1);
+                    stringRanges.add(start, end - quoteLength);
+                    addQuotePair(openString[0], end - quoteLength, openString[1], quoteLength);
+                    return;
+                }
+            }
+            
+            if (opensString) {
+                // The string continues after interpolated code
+                char quoteChar = text.charAt(open);
+                int quoteLength = open + 3 <= end && getQuoteLength(text, open, quoteChar) == 3 ? 3 : 1;
+                openStrings.add(new int[] {open, quoteIndexOf(quoteChar), quoteLength});
+                stringRanges.add(open + quoteLength, end);
+            } else {
+                stringRanges.add(start, end);
+            }
+        }
+        
+        private boolean endsWithQuote(int end, char quoteChar, int quoteLength) {
+            for (int i = end - quoteLength; i < end; i++) {
+                if (text.charAt(i) != quoteChar) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void addQuotePair(int openOffset, int closeOffset, int quoteIndex, int quoteLength) {
+            if (mode.pairsQuotes()) {
+                int colorIndex = (quoteDepths[quoteIndex] + 10) % colorCount;
+                pairs.addQuote(openOffset, closeOffset + quoteLength - 1, quoteIndex, quoteLength, colorIndex);
+            }
+            if (closeOffset > openOffset + quoteLength) {
+                // Empty strings don't advance the color
+                quoteDepths[quoteIndex]++;
+            }
+        }
+        
+        private void matchBrace(char ch, int offset) {
+            if (ch == '(') {
+                parentheses.push(offset);
+            } else if (ch == ')' && !parentheses.isEmpty()) {
+                closeBrace(parentheses, 0, offset);
+            } else if (ch == '{') {
+                curlyBraces.push(offset);
+            } else if (ch == '}' && !curlyBraces.isEmpty()) {
+                closeBrace(curlyBraces, 1, offset);
+            } else if (ch == '[') {
+                squareBrackets.push(offset);
+            } else if (ch == ']' && !squareBrackets.isEmpty()) {
+                closeBrace(squareBrackets, 2, offset);
+            } else if (ch == ')' || ch == '}' || ch == ']') {
+                report(DelimiterIssue.Kind.UNMATCHED_CLOSER, offset);
+            }
+        }
+        
+        private void report(DelimiterIssue.Kind kind, int offset) {
+            if (issues != null) {
+                issues.add(new DelimiterIssue(kind, offset));
+            }
+        }
+        
+        private void reportUnclosed(PositionStack stack) {
+            for (int i = 0; i < stack.size(); i++) {
+                report(DelimiterIssue.Kind.UNMATCHED_OPENER, stack.get(i));
+            }
+        }
+        
+        private void closeBrace(PositionStack stack, int type, int offset) {
+            int openOffset = stack.pop();
+            int depth = stack.size();
+            if (depth < depthCap) {
+                pairs.addBracket(openOffset, offset, type, depth % colorCount);
+            }
+        }
+        
+        private Checkpoint checkpoint(int offset) {
+            return new Checkpoint(offset, pairs.size(), disabledKinds, parentheses.snapshot(), curlyBraces.snapshot(),
+                squareBrackets.snapshot(), quoteDepths.clone());
+        }
+        
+        private boolean closedSinceVisibleStart() {
+            return openedBefore(parentheses, visibleStart) && openedBefore(curlyBraces, visibleStart)
+                && openedBefore(squareBrackets, visibleStart);
+        }
+        
+        private static boolean openedBefore(PositionStack stack, int offset) {
+            return stack.isEmpty() || stack.get(stack.size() - 1) < offset;
+        }
+        
+        // Leaves a checkpoint where the scan stopped, for finish to resume from
+        private void stop(int offset) {
+            if (checkpoints.isEmpty() || checkpoints.get(checkpoints.size() - 1).offset != offset) {
+                checkpoints.add(checkpoint(offset));
+            }
+            stoppedAt = offset;
+        }
+        
+        private void dropCheckpointsAfter(int offset) {
+            while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).offset > offset) {
+                checkpoints.remove(checkpoints.size() - 1);
+            }
+            nextCheckpoint = checkpoints.isEmpty() ? 0 : checkpoints.get(checkpoints.size() - 1).offset + CHECKPOINT_INTERVAL;
+        }
+        
+        // Takes over everything the previous scan found before the checkpoint
+        void restore(ScanResult previous, Checkpoint checkpoint) {
+            pairs.addFirst(previous.pairs, checkpoint.pairCount);
+            addRangesBefore(previous.commentRanges, checkpoint.offset, commentRanges);
+            addRangesBefore(previous.stringRanges, checkpoint.offset, stringRanges);
+            for (Checkpoint earlier : previous.checkpoints) {
+                if (earlier.offset >= checkpoint.offset) {
+                    break;
+                }
+                checkpoints.add(earlier);
+            }
+            
+            parentheses.restore(checkpoint.parentheses);
+            curlyBraces.restore(checkpoint.curlyBraces);
+            squareBrackets.restore(checkpoint.squareBrackets);
+            System.arraycopy(checkpoint.quoteDepths, 0, quoteDepths, 0, quoteDepths.length);
+            disabledKinds = checkpoint.disabledKinds;
+            nextCheckpoint = checkpoint.offset;
+        }
+        
+        /**
+         * Takes over everything the previous scan found after the matched checkpoint, shifted by the edit.
+         * Returns whether the colors of later strings changed.
+         */
+        boolean appendShifted(ScanResult previous, Convergence convergence) {
+            Checkpoint matched = convergence.checkpoint();
+            int[] quoteShifts = new int[quoteDepths.length];
+            boolean quoteColorsShifted = false;
+            for (int q = 0; q < quoteShifts.length; q++) {
+                quoteShifts[q] = quoteDepths[q] - matched.quoteDepths[q];
+                quoteColorsShifted |= quoteShifts[q] % colorCount != 0;
+            }
+            int pairShift = pairs.size() - matched.pairCount;
+            
+            DelimiterPairs previousPairs = previous.pairs;
+            for (int p = matched.pairCount; p < previousPairs.size(); p++) {
+                if (p % CANCEL_CHECK_INTERVAL == 0) {
+                    checkCanceled();
+                }
+                int colorIndex = previousPairs.getColorIndex(p);
+                int quoteIndex = previousPairs.getQuoteIndex(p);
+                if (quoteIndex != -1) {
+                    // Strings added or removed by the edit shift the colors of all later strings
+                    colorIndex = Math.floorMod(colorIndex + quoteShifts[quoteIndex], colorCount);
+                }
+                pairs.addMoved(previousPairs, p, convergence.map(previousPairs.getOpenOffset(p)),
+                    convergence.map(previousPairs.getCloseOffset(p)), colorIndex);
+            }
+            
+            addRangesFrom(previous.commentRanges, matched.offset, convergence, commentRanges);
+            addRangesFrom(previous.stringRanges, matched.offset, convergence, stringRanges);
+            
+            Checkpoint previousOld = null;
+            Checkpoint previousShifted = null;
+            for (int c = convergence.index; c < previous.checkpoints.size(); c++) {
+                Checkpoint old = previous.checkpoints.get(c);
+                int[] depths = old.quoteDepths.clone();
+                for (int q = 0; q < depths.length; q++) {
+                    depths[q] += quoteShifts[q];
+                }
+                Checkpoint shifted = new Checkpoint(convergence.map(old.offset), old.pairCount + pairShift,
+                    old.disabledKinds,
+                    convergence.map(old.parentheses, previousOld != null ? previousOld.parentheses : null,
+                        previousShifted != null ? previousShifted.parentheses : null),
+                    convergence.map(old.curlyBraces, previousOld != null ? previousOld.curlyBraces : null,
+                        previousShifted != null ? previousShifted.curlyBraces : null),
+                    convergence.map(old.squareBrackets, previousOld != null ? previousOld.squareBrackets : null,
+                        previousShifted != null ? previousShifted.squareBrackets : null),
+                    depths);
+                checkpoints.add(shifted);
+                previousOld = old;
+                previousShifted = shifted;
+            }
+            return quoteColorsShifted;
+        }
+    }
+    
+    /**
+     * Walks the previous scan's checkpoints past the edited region, looking for one whose state
+     * the new scan reaches again at the same (shifted) position.
+     */
+    private static class Convergence {
+        private final ScanResult previous;
+        private final int dirtyStart;
+        private final int oldDirtyEnd;
+        private final int delta;
+        private int index;
+        private boolean matched;
+        // Offset of the current candidate in the new text
+        private int offset = Integer.MAX_VALUE;
+        
+        Convergence(ScanResult previous, int dirtyStart, int oldDirtyEnd, int delta) {
+            this.previous = previous;
+            this.dirtyStart = dirtyStart;
+            this.oldDirtyEnd = oldDirtyEnd;
+            this.delta = delta;
+            
+            // Up to two characters before a checkpoint are still looked at (string prefixes), so they must be unchanged too
+            seek(previous.checkpointsUpTo(oldDirtyEnd + 1));
+        }
+        
+        Checkpoint checkpoint() {
+            return previous.checkpoints.get(index);
+        }
+        
+        void advancePast(int newOffset) {
+            int next = index + 1;
+            while (next < previous.checkpoints.size() && previous.checkpoints.get(next).offset + delta <= newOffset) {
+                next++;
+            }
+            seek(next);
+        }
+        
+        private void seek(int candidate) {
+            index = candidate;
+            offset = index < previous.checkpoints.size() ? previous.checkpoints.get(index).offset + delta : Integer.MAX_VALUE;
+        }
+        
+        boolean matches(Scanner scanner) {
+            Checkpoint old = checkpoint();
+            matched = old.disabledKinds == scanner.disabledKinds
+                && sameStack(old.parentheses, scanner.parentheses)
+                && sameStack(old.curlyBraces, scanner.curlyBraces)
+                && sameStack(old.squareBrackets, scanner.squareBrackets);
+            return matched;
+        }
+        
+        private boolean sameStack(StackSnapshot old, PositionStack stack) {
+            if (old.size() != stack.size()) {
+                return false;
+            }
+            int[] oldPositions = old.toArray();
+            for (int i = 0; i < oldPositions.length; i++) {
+                int position = oldPositions[i];
+                if (position >= dirtyStart && position < oldDirtyEnd) {
+                    return false;
+                }
+                if (map(position) != stack.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        // Maps an offset of the previous text outside the edited region to the new text
+        int map(int oldOffset) {
+            return oldOffset < dirtyStart ? oldOffset : oldOffset + delta;
+        }
+        
+        int[] map(int[] oldOffsets) {
+            int[] mapped = new int[oldOffsets.length];
+            for (int i = 0; i < oldOffsets.length; i++) {
+                mapped[i] = map(oldOffsets[i]);
+            }
+            return mapped;
+        }
+        
+        // Maps a snapshot of the previous scan, on the mapped snapshot before it when that is its base
+        StackSnapshot map(StackSnapshot old, StackSnapshot oldBefore, StackSnapshot mappedBefore) {
+            if (mappedBefore == null || old.base != oldBefore) {
+                return new StackSnapshot(null, 0, map(old.toArray()));
+            }
+            return new StackSnapshot(mappedBefore, old.baseSize, map(old.tail));
+        }
+    }
+    
+    private static void addRangesBefore(SkipRangeIndex ranges, int offset, SkipRangeIndex.Builder target) {
+        for (int i = 0; i < ranges.size() && ranges.getEnd(i) <= offset; i++) {
+            target.add(ranges.getStart(i), ranges.getEnd(i));
+        }
+    }
+    
+    private static void addRangesFrom(SkipRangeIndex ranges, int offset, Convergence convergence, SkipRangeIndex.Builder target) {
+        for (int i = 0; i < ranges.size(); i++) {
+            if (ranges.getStart(i) >= offset) {
+                target.add(convergence.map(ranges.getStart(i)), convergence.map(ranges.getEnd(i)));
+            }
+        }
+    }
+    
+    /**
+     * Unsynchronized stack of text offsets.
+     */
+    static class PositionStack {
+        private int[] positions = new int[16];
+        private int size;
+        // Entries below this size are unchanged since the last snapshot
+        private int unchangedSize;
+        private StackSnapshot lastSnapshot;
+        
+        void push(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+        
+        void pushAll(int[] values) {
+            for (int value : values) {
+                push(value);
+            }
+        }
+        
+        int pop() {
+            size--;
+            unchangedSize = Math.min(unchangedSize, size);
+            return positions[size];
+        }
+        
+        int get(int index) {
+            return positions[index];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        boolean isEmpty() {
+            return size == 0;
+        }
+        
+        int[] toArray() {
+            return Arrays.copyOf(positions, size);
+        }
+        
+        StackSnapshot snapshot() {
+            int baseSize = lastSnapshot != null ? unchangedSize : 0;
+            lastSnapshot = new StackSnapshot(lastSnapshot, baseSize, Arrays.copyOfRange(positions, baseSize, size));
+            unchangedSize = size;
+            return lastSnapshot;
+        }
+        
+        void restore(StackSnapshot snapshot) {
+            positions = new int[Math.max(16, snapshot.size())];
+            snapshot.copyTo(positions);
+            size = snapshot.size();
+            unchangedSize = size;
+            lastSnapshot = snapshot;
+        }
+    }
+    
+    /**
+     * The positions on a stack at a checkpoint. Only the ones pushed since the previous snapshot are
+     * copied and the rest is read through it, so when unclosed openers pile up, each checkpoint still
+     * costs what changed since the last one rather than the depth of the stack.
+     */
+    static class StackSnapshot {
+        private final StackSnapshot base;
+        // Positions below this index are those of the base
+        private final int baseSize;
+        private final int[] tail;
+        
+        StackSnapshot(StackSnapshot base, int baseSize, int[] tail) {
+            this.base = base;
+            this.baseSize = baseSize;
+            this.tail = tail;
+        }
+        
+        int size() {
+            return baseSize + tail.length;
+        }
+        
+        int[] toArray() {
+            int[] positions = new int[size()];
+            copyTo(positions);
+            return positions;
+        }
+        
+        void copyTo(int[] positions) {
+            int end = size();
+            for (StackSnapshot snapshot = this; end > 0; snapshot = snapshot.base) {
+                if (end > snapshot.baseSize) {
+                    System.arraycopy(snapshot.tail, 0, positions, snapshot.baseSize, end - snapshot.baseSize);
+                    end = snapshot.baseSize;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Thrown when a scan runs past its deadline, so that a cheaper mode can be used instead.
+     */
+    static class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+    
+    // One bit per quote character and length (single or triple), after the block comment bit
+    private static int quoteKind(int quoteIndex, int quoteLength) {
+        return 1 << (1 + quoteIndex * 2 + (quoteLength == 3 ? 1 : 0));
+    }
+    
+    private static boolean isQuoteChar(char ch) {
+        return ch == '\'' || ch == '"' || ch == '`';
+    }
+    
+    private static int quoteIndexOf(char ch) {
+        for (int i = 0; i < QUOTE_CHARS.length; i++) {
+            if (QUOTE_CHARS[i] == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int getQuoteLength(CharSequence text, int startPos, char quoteChar) {
+        int length = 1;
+        
+        // Check for triple quotes
+        if (startPos + 2 < text.length() && 
+            text.charAt(startPos + 1) == quoteChar && 
+            text.charAt(startPos + 2) == quoteChar) {
+            length = 3;
+        }
+        
+        return length;
+    }
+    
+    private static boolean isIdentifierChar(char ch) {
+        // Checked before every r in code, so ASCII skips the Unicode tables
+        if (ch < 128) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+        }
+        return Character.isLetterOrDigit(ch);
+    }
+    
+    public static boolean isDelimiter(char ch) {
+        return isOpeningDelimiter(ch) || isClosingDelimiter(ch);
+    }
+    
+    public static boolean isOpeningDelimiter(char ch) {
+        return ch == '(' || ch == '{' || ch == '[';
+    }
+    
+    public static boolean isClosingDelimiter(char ch) {
+        return ch == ')' || ch == '}' || ch == ']';
+    }
+}
\ No newline at end of file
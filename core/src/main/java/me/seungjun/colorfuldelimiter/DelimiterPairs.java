@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matched delimiter pairs stored as parallel primitive arrays, in the order they were closed.
+ * Read-only outside this package; {@link #asList()} gives a {@link DelimiterMatcher.DelimiterPair} view.
+ */
+public class DelimiterPairs {
+    
+    // Opening characters by type index; brackets first, then quotes
+    private static final char[] TYPES = {'(', '{', '[', '\'', '"', '`'};
+    private static final int FIRST_QUOTE_TYPE = 3;
+    
+    private int[] openOffsets;
+    private int[] closeOffsets;
+    // Packed as (type << 24 | quoteLength << 16 | colorIndex)
+    private int[] infos;
+    private int size;
+    
+    DelimiterPairs() {
+        this(16);
+    }
+    
+    DelimiterPairs(int capacity) {
+        openOffsets = new int[capacity];
+        closeOffsets = new int[capacity];
+        infos = new int[capacity];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getOpenOffset(int index) {
+        return openOffsets[index];
+    }
+    
+    /**
+     * Offset of the last character of the closing delimiter.
+     */
+    public int getCloseOffset(int index) {
+        return closeOffsets[index];
+    }
+    
+    public char getDelimiterType(int index) {
+        return TYPES[infos[index] >>> 24];
+    }
+    
+    public int getColorIndex(int index) {
+        return infos[index] & 0xFFFF;
+    }
+    
+    public boolean isQuote(int index) {
+        return infos[index] >>> 24 >= FIRST_QUOTE_TYPE;
+    }
+    
+    public int getQuoteLength(int index) {
+        return (infos[index] >>> 16) & 0xFF;
+    }
+    
+    public DelimiterMatcher.DelimiterPair get(int index) {
+        if (isQuote(index)) {
+            return new DelimiterMatcher.DelimiterPair(openOffsets[index], closeOffsets[index], getDelimiterType(index),
+                getColorIndex(index), getQuoteLength(index));
+        }
+        return new DelimiterMatcher.DelimiterPair(openOffsets[index], closeOffsets[index], getDelimiterType(index),
+            getColorIndex(index));
+    }
+    
+    /**
+     * Read-only list view, creating a pair object for each element as it is accessed.
+     */
+    public List<DelimiterMatcher.DelimiterPair> asList() {
+        return new AbstractList<DelimiterMatcher.DelimiterPair>() {
+            @Override
+            public DelimiterMatcher.DelimiterPair get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                }
+                return DelimiterPairs.this.get(index);
+            }
+            
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    void addBracket(int openOffset, int closeOffset, int type, int colorIndex) {
+        add(openOffset, closeOffset, (type << 24) | (1 << 16) | colorIndex);
+    }
+    
+    void addQuote(int openOffset, int closeOffset, int quoteIndex, int quoteLength, int colorIndex) {
+        add(openOffset, closeOffset, ((FIRST_QUOTE_TYPE + quoteIndex) << 24) | (quoteLength << 16) | colorIndex);
+    }
+    
+    // Index of the quote character among the quote types, or -1 for brackets
+    int getQuoteIndex(int index) {
+        int type = infos[index] >>> 24;
+        return type >= FIRST_QUOTE_TYPE ? type - FIRST_QUOTE_TYPE : -1;
+    }
+    
+    /**
+     * Appends the first count pairs of another list.
+     */
+    void addFirst(DelimiterPairs other, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(other.openOffsets, 0, openOffsets, size, count);
+        System.arraycopy(other.closeOffsets, 0, closeOffsets, size, count);
+        System.arraycopy(other.infos, 0, infos, size, count);
+        size += count;
+    }
+    
+    /**
+     * Appends a pair of another list with its offsets replaced and its color index changed.
+     */
+    void addMoved(DelimiterPairs other, int index, int openOffset, int closeOffset, int colorIndex) {
+        add(openOffset, closeOffset, (other.infos[index] & 0xFFFF0000) | colorIndex);
+    }
+    
+    void writeTo(IntBuffer out) {
+        out.put(size);
+        out.put(openOffsets, 0, size);
+        out.put(closeOffsets, 0, size);
+        out.put(infos, 0, size);
+    }
+    
+    static DelimiterPairs readFrom(IntBuffer in) {
+        int size = in.get();
+        if (size < 0 || size > in.remaining() / 3) {
+            throw new IllegalArgumentException("Bad pair count: " + size);
+        }
+        DelimiterPairs pairs = new DelimiterPairs(Math.max(16, size));
+        in.get(pairs.openOffsets, 0, size);
+        in.get(pairs.closeOffsets, 0, size);
+        in.get(pairs.infos, 0, size);
+        pairs.size = size;
+        return pairs;
+    }
+    
+    private void add(int openOffset, int closeOffset, int info) {
+        if (size == openOffsets.length) {
+            ensureCapacity(size * 2);
+        }
+        openOffsets[size] = openOffset;
+        closeOffsets[size] = closeOffset;
+        infos[size] = info;
+        size++;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > openOffsets.length) {
+            capacity = Math.max(capacity, 16);
+            openOffsets = Arrays.copyOf(openOffsets, capacity);
+            closeOffsets = Arrays.copyOf(closeOffsets, capacity);
+            infos = Arrays.copyOf(infos, capacity);
+        }
+    }
+}
\ No newline at end of file
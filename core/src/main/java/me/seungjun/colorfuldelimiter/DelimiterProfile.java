@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * Comment and string syntax the text scanner recognizes, for languages it has no lexer for. Each profile
+ * is compiled once into a table of character classes, so the scanner can pass over characters that
+ * can't start anything with a single lookup and never tries syntax the language doesn't have.
+ */
+public class DelimiterProfile {
+    
+    // Character classes, bits of the lookup table
+    static final int BRACKET = 1;
+    static final int QUOTE = 1 << 1;
+    static final int COMMENT_START = 1 << 2;
+    static final int RAW_STRING_PREFIX = 1 << 3;
+    static final int LONG_STRING_START = 1 << 4;
+    
+    /**
+     * C-like code, also used for languages without a profile: //, # and block comments, ' and " end at the
+     * line end, ` and triple quotes span lines, a backslash escapes the next character, and r"...",
+     * r#"..."# (raw) and @"..." (verbatim) strings have no escapes.
+     */
+    public static final DelimiterProfile DEFAULT = new Builder().lineComments("//", "#").blockComment("/*", "*/")
+        .quotes("'\"`").rawStrings(true).verbatimStrings().build();
+    
+    /** Like {@link #DEFAULT} without # comments. */
+    public static final DelimiterProfile C_LIKE = new Builder().lineComments("//").blockComment("/*", "*/")
+        .quotes("'\"`").rawStrings(true).verbatimStrings().build();
+    
+    /** Scripting languages with # comments; raw strings only take the r prefix, since # starts a comment. */
+    public static final DelimiterProfile HASH = new Builder().lineComments("#").quotes("'\"`").rawStrings(false).build();
+    
+    public static final DelimiterProfile SQL = new Builder().lineComments("--").blockComment("/*", "*/").quotes("'\"`").build();
+    
+    /** -- and --[[ ]] comments, [[ ]] and [=[ ]=] long strings. */
+    public static final DelimiterProfile LUA = new Builder().lineComments("--").blockComment("--[[", "]]").quotes("'\"")
+        .longStrings().build();
+    
+    /** -- and {- -} comments; an apostrophe after a name is part of it (x'). */
+    public static final DelimiterProfile HASKELL = new Builder().lineComments("--").blockComment("{-", "-}").quotes("\"'")
+        .wordApostrophes().build();
+    
+    /** ; comments, and ' is a quote form rather than a string. */
+    public static final DelimiterProfile LISP = new Builder().lineComments(";").quotes("\"").build();
+    
+    /** F# and OCaml: // and (* *) comments. */
+    public static final DelimiterProfile ML = new Builder().lineComments("//").blockComment("(*", "*)").quotes("\"")
+        .verbatimStrings().build();
+    
+    /** ' comments, " strings. */
+    public static final DelimiterProfile BASIC = new Builder().lineComments("'").quotes("\"").build();
+    
+    /** % comments, as in Erlang. */
+    public static final DelimiterProfile PERCENT = new Builder().lineComments("%").quotes("'\"").build();
+    
+    /** TeX and LaTeX: % comments and no strings. */
+    public static final DelimiterProfile TEX = new Builder().lineComments("%").build();
+    
+    /** HTML, XML and templates: {@code <!-- -->} comments, and apostrophes inside words are ignored in the text. */
+    public static final DelimiterProfile MARKUP = new Builder().blockComment("<!--", "-->").quotes("'\"")
+        .wordApostrophes().build();
+    
+    /** Markdown: like {@link #PROSE} with {@code <!-- -->} comments. */
+    public static final DelimiterProfile MARKDOWN = new Builder().blockComment("<!--", "-->").quotes("'\"`")
+        .wordApostrophes().build();
+    
+    /**
+     * Plain text: no comments, no raw and verbatim strings, and an apostrophe after a letter or digit
+     * (don't, students') doesn't start a string.
+     */
+    public static final DelimiterProfile PROSE = new Builder().quotes("'\"`").wordApostrophes().build();
+    
+    private final String[] lineComments;
+    private final String blockCommentStart;
+    private final String blockCommentEnd;
+    private final boolean rawStrings;
+    private final boolean hashedRawStrings;
+    private final boolean verbatimStrings;
+    private final boolean wordApostrophes;
+    private final boolean longStrings;
+    // Character class bits of each ASCII character; all other characters have none
+    private final byte[] classes = new byte[128];
+    private final int lookahead;
+    
+    private DelimiterProfile(Builder builder) {
+        this.lineComments = builder.lineComments;
+        this.blockCommentStart = builder.blockCommentStart;
+        this.blockCommentEnd = builder.blockCommentEnd;
+        this.rawStrings = builder.rawStrings;
+        this.hashedRawStrings = builder.hashedRawStrings;
+        this.verbatimStrings = builder.verbatimStrings;
+        this.wordApostrophes = builder.wordApostrophes;
+        this.longStrings = builder.longStrings;
+        
+        for (char ch : "(){}[]".toCharArray()) {
+            classes[ch] |= BRACKET;
+        }
+        for (char ch : builder.quotes.toCharArray()) {
+            classes[ch] |= QUOTE;
+        }
+        // Triple quotes look two characters ahead
+        int markerLength = 3;
+        for (String marker : lineComments) {
+            classes[marker.charAt(0)] |= COMMENT_START;
+            markerLength = Math.max(markerLength, marker.length());
+        }
+        if (blockCommentStart != null) {
+            classes[blockCommentStart.charAt(0)] |= COMMENT_START;
+            markerLength = Math.max(markerLength, blockCommentStart.length());
+        }
+        if (rawStrings) {
+            classes['r'] |= RAW_STRING_PREFIX;
+            classes['R'] |= RAW_STRING_PREFIX;
+        }
+        if (longStrings) {
+            classes['['] |= LONG_STRING_START;
+        }
+        this.lookahead = markerLength - 1;
+    }
+    
+    public static DelimiterProfile forLanguage(String languageId) {
+        switch (languageId) {
+            case "JAVA":
+            case "kotlin":
+            case "Groovy":
+            case "Scala":
+            case "JavaScript":
+            case "TypeScript":
+            case "JSON":
+            case "CSS":
+            case "LESS":
+            case "SASS":
+            case "SCSS":
+            case "C":
+            case "C++":
+            case "ObjectiveC":
+            case "go":
+            case "C#":
+            case "Rust":
+            case "Swift":
+            case "Dart":
+                return C_LIKE;
+            case "Python":
+            case "ruby":
+            case "YAML":
+            case "Properties":
+            case "Smali":
+            case "Bash":
+            case "Shell Script":
+            case "PowerShell":
+            case "Dockerfile":
+            case "Perl":
+            case "R":
+            case "Elixir":
+                return HASH;
+            case "SQL":
+                return SQL;
+            case "Lua":
+                return LUA;
+            case "Haskell":
+                return HASKELL;
+            case "Clojure":
+                return LISP;
+            case "F#":
+                return ML;
+            case "VB.NET":
+                return BASIC;
+            case "Erlang":
+                return PERCENT;
+            case "LaTeX":
+                return TEX;
+            case "XML":
+            case "HTML":
+            case "Vue":
+            case "Angular2Html":
+            case "Django":
+            case "Jinja2":
+            case "blade":
+            case "Twig":
+            case "RHTML":
+                return MARKUP;
+            case "Markdown":
+                return MARKDOWN;
+            case "TEXT":
+            case "ReStructuredText":
+            case "AsciiDoc":
+                return PROSE;
+            default:
+                return DEFAULT;
+        }
+    }
+    
+    /**
+     * Returns the profile for a file name extension, lower case and without the dot, or null for
+     * extensions of files that aren't source code or text.
+     */
+    public static DelimiterProfile forExtension(String extension) {
+        switch (extension) {
+            case "java":
+            case "kt":
+            case "kts":
+            case "groovy":
+            case "gradle":
+            case "scala":
+            case "js":
+            case "jsx":
+            case "mjs":
+            case "cjs":
+            case "ts":
+            case "tsx":
+            case "json":
+            case "css":
+            case "less":
+            case "sass":
+            case "scss":
+            case "c":
+            case "h":
+            case "cc":
+            case "cpp":
+            case "cxx":
+            case "hpp":
+            case "m":
+            case "mm":
+            case "go":
+            case "cs":
+            case "rs":
+            case "swift":
+            case "dart":
+                return C_LIKE;
+            case "php":
+                return DEFAULT;
+            case "py":
+            case "pyi":
+            case "rb":
+            case "yml":
+            case "yaml":
+            case "properties":
+            case "toml":
+            case "smali":
+            case "sh":
+            case "bash":
+            case "zsh":
+            case "ps1":
+            case "pl":
+            case "pm":
+            case "r":
+            case "ex":
+            case "exs":
+                return HASH;
+            case "sql":
+                return SQL;
+            case "lua":
+                return LUA;
+            case "hs":
+                return HASKELL;
+            case "clj":
+            case "cljs":
+            case "edn":
+            case "el":
+            case "lisp":
+            case "scm":
+                return LISP;
+            case "fs":
+            case "fsx":
+            case "ml":
+            case "mli":
+                return ML;
+            case "vb":
+                return BASIC;
+            case "erl":
+            case "hrl":
+                return PERCENT;
+            case "tex":
+            case "sty":
+                return TEX;
+            case "xml":
+            case "html":
+            case "htm":
+            case "vue":
+            case "svg":
+                return MARKUP;
+            case "md":
+            case "markdown":
+                return MARKDOWN;
+            case "txt":
+            case "rst":
+            case "adoc":
+                return PROSE;
+            default:
+                return null;
+        }
+    }
+    
+    public boolean hasRawStrings() {
+        return rawStrings;
+    }
+    
+    /**
+     * Whether a raw string may be enclosed in # after the r prefix.
+     */
+    public boolean hasHashedRawStrings() {
+        return hashedRawStrings;
+    }
+    
+    public boolean hasVerbatimStrings() {
+        return verbatimStrings;
+    }
+    
+    /**
+     * Whether an apostrophe directly after a letter or digit is part of the word rather than a quote.
+     */
+    public boolean hasWordApostrophes() {
+        return wordApostrophes;
+    }
+    
+    /**
+     * Whether [[...]] and [=[...]=] are strings, with any number of = matched by the closer.
+     */
+    public boolean hasLongStrings() {
+        return longStrings;
+    }
+    
+    public boolean isQuote(char ch) {
+        return (charClass(ch) & QUOTE) != 0;
+    }
+    
+    /**
+     * Whether strings opened by the quote character end at the line end.
+     */
+    public boolean isLineBounded(char quoteChar, int quoteLength) {
+        return quoteLength == 1 && quoteChar != '`';
+    }
+    
+    int charClass(char ch) {
+        return ch < classes.length ? classes[ch] : 0;
+    }
+    
+    /**
+     * Characters past a position that are looked at to decide what starts there, apart from the
+     * # and = runs of raw and long strings.
+     */
+    int getLookahead() {
+        return lookahead;
+    }
+    
+    // Length of the line comment marker at the offset, or 0
+    int lineCommentAt(CharSequence text, int offset) {
+        for (String marker : lineComments) {
+            if (startsWith(text, offset, marker)) {
+                return marker.length();
+            }
+        }
+        return 0;
+    }
+    
+    int blockCommentStartAt(CharSequence text, int offset) {
+        return blockCommentStart != null && startsWith(text, offset, blockCommentStart) ? blockCommentStart.length() : 0;
+    }
+    
+    // Only used inside block comments, so the profile has them
+    char getBlockCommentEndChar() {
+        return blockCommentEnd.charAt(0);
+    }
+    
+    int blockCommentEndAt(CharSequence text, int offset) {
+        return startsWith(text, offset, blockCommentEnd) ? blockCommentEnd.length() : 0;
+    }
+    
+    private static boolean startsWith(CharSequence text, int offset, String marker) {
+        if (offset + marker.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i < marker.length(); i++) {
+            if (text.charAt(offset + i) != marker.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static class Builder {
+        private String[] lineComments = new String[0];
+        private String blockCommentStart;
+        private String blockCommentEnd;
+        private String quotes = "";
+        private boolean rawStrings;
+        private boolean hashedRawStrings;
+        private boolean verbatimStrings;
+        private boolean wordApostrophes;
+        private boolean longStrings;
+        
+        Builder lineComments(String... markers) {
+            lineComments = markers;
+            return this;
+        }
+        
+        Builder blockComment(String start, String end) {
+            blockCommentStart = start;
+            blockCommentEnd = end;
+            return this;
+        }
+        
+        // Any of ', " and `
+        Builder quotes(String quoteChars) {
+            quotes = quoteChars;
+            return this;
+        }
+        
+        Builder rawStrings(boolean hashed) {
+            rawStrings = true;
+            hashedRawStrings = hashed;
+            return this;
+        }
+        
+        Builder verbatimStrings() {
+            verbatimStrings = true;
+            return this;
+        }
+        
+        Builder wordApostrophes() {
+            wordApostrophes = true;
+            return this;
+        }
+        
+        Builder longStrings() {
+            longStrings = true;
+            return this;
+        }
+        
+        DelimiterProfile build() {
+            return new DelimiterProfile(this);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * The delimiters of a {@link DelimiterIndex} with adjacent ones of the same color joined into a single
+ * range, such as the two parentheses of an empty argument list or the quotes of an empty string.
+ */
+public class DelimiterRuns {
+    
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] colorIndices;
+    private final int size;
+    
+    private DelimiterRuns(int[] starts, int[] ends, int[] colorIndices, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.colorIndices = colorIndices;
+        this.size = size;
+    }
+    
+    public static DelimiterRuns build(DelimiterIndex index) {
+        int[] starts = new int[index.size()];
+        int[] ends = new int[index.size()];
+        int[] colorIndices = new int[index.size()];
+        int size = 0;
+        for (int i = 0; i < index.size(); i++) {
+            int offset = index.getOffset(i);
+            int colorIndex = index.getColorIndex(i);
+            if (size > 0 && ends[size - 1] == offset && colorIndices[size - 1] == colorIndex) {
+                ends[size - 1] = offset + index.getLength(i);
+                continue;
+            }
+            starts[size] = offset;
+            ends[size] = offset + index.getLength(i);
+            colorIndices[size] = colorIndex;
+            size++;
+        }
+        return new DelimiterRuns(starts, ends, colorIndices, size);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getStart(int run) {
+        return starts[run];
+    }
+    
+    public int getEnd(int run) {
+        return ends[run];
+    }
+    
+    public int getColorIndex(int run) {
+        return colorIndices[run];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * Tokens of an already lexed text, reduced to what the matcher needs to know about each one:
+ * where it is and whether it is code, a comment or part of a string literal.
+ */
+public interface DelimiterTokenStream {
+    
+    int CODE = 0;
+    int COMMENT = 1;
+    int STRING = 2;
+    
+    boolean atEnd();
+    
+    int getStart();
+    
+    int getEnd();
+    
+    int getKind();
+    
+    void advance();
+    
+    /**
+     * Whether a lexer started at the current token, in the state it was started in at the beginning of
+     * the text, would produce the same tokens from here on. Scans resume from and converge on checkpoints
+     * at such tokens only.
+     */
+    default boolean isRestartPoint() {
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.Arrays;
+
+/**
+ * The pairs of a scan ordered by opening offset, with their nesting, so the pair around an offset and
+ * the parent and siblings of a pair are found without going through the text. Pairs are numbered in
+ * opening order; {@link #getPairIndex} gives the index in {@link DelimiterPairs}.
+ */
+public class NestingIndex {
+    
+    public static final int NONE = -1;
+    
+    private final DelimiterPairs pairs;
+    private final int[] pairIndices;
+    private final int[] openOffsets;
+    private final int[] parents;
+    private final int[] previousSiblings;
+    private final int[] nextSiblings;
+    // Segment tree over the pairs of the largest offset of a closing delimiter, leaves from index capacity
+    private final int[] maxCloseStarts;
+    private final int capacity;
+    
+    private NestingIndex(DelimiterPairs pairs, int[] pairIndices) {
+        int count = pairIndices.length;
+        this.pairs = pairs;
+        this.pairIndices = pairIndices;
+        this.openOffsets = new int[count];
+        this.parents = new int[count];
+        this.previousSiblings = new int[count];
+        this.nextSiblings = new int[count];
+        
+        int leaves = 1;
+        while (leaves < count) {
+            leaves <<= 1;
+        }
+        this.capacity = leaves;
+        this.maxCloseStarts = new int[2 * leaves];
+        Arrays.fill(maxCloseStarts, Integer.MIN_VALUE);
+    }
+    
+    public static NestingIndex build(DelimiterPairs pairs, CancellationCheck cancellation) {
+        // Packed as (offset << 32 | index) so a primitive sort orders by opening offset
+        long[] entries = new long[pairs.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = ((long) pairs.getOpenOffset(i) << 32) | i;
+        }
+        Arrays.sort(entries);
+        cancellation.checkCanceled();
+        
+        int[] pairIndices = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            pairIndices[i] = (int) entries[i];
+        }
+        NestingIndex index = new NestingIndex(pairs, pairIndices);
+        index.link(cancellation);
+        return index;
+    }
+    
+    // Finds parents and siblings with a stack of the pairs still open, and fills the segment tree
+    private void link(CancellationCheck cancellation) {
+        int count = pairIndices.length;
+        int[] open = new int[count];
+        int openCount = 0;
+        int[] lastChildren = new int[count];
+        Arrays.fill(lastChildren, NONE);
+        int lastRoot = NONE;
+        
+        for (int i = 0; i < count; i++) {
+            if ((i & 0xFFF) == 0) {
+                cancellation.checkCanceled();
+            }
+            openOffsets[i] = pairs.getOpenOffset(pairIndices[i]);
+            int closeOffset = getCloseOffset(i);
+            // Pairs of different bracket types can cross; one that closes first doesn't contain this one
+            while (openCount > 0 && getCloseOffset(open[openCount - 1]) < closeOffset) {
+                openCount--;
+            }
+            int parent = openCount > 0 ? open[openCount - 1] : NONE;
+            int previous = parent == NONE ? lastRoot : lastChildren[parent];
+            parents[i] = parent;
+            previousSiblings[i] = previous;
+            nextSiblings[i] = NONE;
+            if (previous != NONE) {
+                nextSiblings[previous] = i;
+            }
+            if (parent == NONE) {
+                lastRoot = i;
+            } else {
+                lastChildren[parent] = i;
+            }
+            open[openCount++] = i;
+            
+            maxCloseStarts[capacity + i] = closeOffset - getLength(i) + 1;
+        }
+        for (int node = capacity - 1; node > 0; node--) {
+            maxCloseStarts[node] = Math.max(maxCloseStarts[2 * node], maxCloseStarts[2 * node + 1]);
+        }
+    }
+    
+    public int size() {
+        return pairIndices.length;
+    }
+    
+    public int getPairIndex(int pair) {
+        return pairIndices[pair];
+    }
+    
+    public int getOpenOffset(int pair) {
+        return openOffsets[pair];
+    }
+    
+    /**
+     * Offset of the last character of the closing delimiter.
+     */
+    public int getCloseOffset(int pair) {
+        return pairs.getCloseOffset(pairIndices[pair]);
+    }
+    
+    public int getLength(int pair) {
+        return pairs.getQuoteLength(pairIndices[pair]);
+    }
+    
+    public int getColorIndex(int pair) {
+        return pairs.getColorIndex(pairIndices[pair]);
+    }
+    
+    public int getParent(int pair) {
+        return parents[pair];
+    }
+    
+    public int getPreviousSibling(int pair) {
+        return previousSiblings[pair];
+    }
+    
+    public int getNextSibling(int pair) {
+        return nextSiblings[pair];
+    }
+    
+    /**
+     * Returns the innermost pair whose delimiters are on either side of the offset, as a caret between
+     * two characters, or {@link #NONE}. Takes logarithmic time in the number of pairs.
+     */
+    public int enclosing(int offset) {
+        int pair = lastClosingFrom(1, 0, capacity, firstOpenAtOrAfter(offset), offset);
+        // The offset may be inside the opening delimiter of a triple-quoted string
+        while (pair != NONE && openOffsets[pair] + getLength(pair) > offset) {
+            pair = parents[pair];
+        }
+        return pair;
+    }
+    
+    // Index of the first pair opening at or after the offset
+    private int firstOpenAtOrAfter(int offset) {
+        int low = 0;
+        int high = openOffsets.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (openOffsets[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // Last pair before the end, within the node's range [from, to), whose closing delimiter starts at or after the offset
+    private int lastClosingFrom(int node, int from, int to, int end, int offset) {
+        if (from >= end || maxCloseStarts[node] < offset) {
+            return NONE;
+        }
+        if (to - from == 1) {
+            return from;
+        }
+        int mid = (from + to) >>> 1;
+        int pair = lastClosingFrom(2 * node + 1, mid, to, end, offset);
+        return pair != NONE ? pair : lastClosingFrom(2 * node, from, mid, end, offset);
+    }
+}
\ No newline at end of file
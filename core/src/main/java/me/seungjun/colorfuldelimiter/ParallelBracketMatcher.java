@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Bracket-only matching split across a fork-join pool. Each chunk of the text is matched on its own,
+ * leaving its closers without an opener in the chunk and its openers without a closer; a sequential
+ * combine step then pairs those across chunks and turns the depths within a chunk into global depths
+ * by adding the number of brackets left open by earlier chunks. Gives the same pairs, in the same
+ * order, as the serial bracket-only scan.
+ */
+class ParallelBracketMatcher {
+    
+    // Below this the serial scan is about as fast as starting the tasks
+    static final int MIN_LENGTH = 1 << 20;
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    // How often the calling thread checks for cancellation while the chunks are matched
+    private static final long CANCEL_POLL_MILLIS = 10;
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+    
+    private static final int BRACKET_TYPES = 3;
+    
+    private final CharSequence text;
+    private final int depthCap;
+    private final int colorCount;
+    private volatile boolean canceled;
+    
+    private ParallelBracketMatcher(CharSequence text, int depthCap, int colorCount) {
+        this.text = text;
+        this.depthCap = depthCap;
+        this.colorCount = colorCount;
+    }
+    
+    /**
+     * Whether matching the text in parallel is worth it.
+     */
+    static boolean isWorthwhile(int length) {
+        return length >= MIN_LENGTH && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+    
+    static DelimiterPairs match(CharSequence text, int depthCap, int colorCount, CancellationCheck cancellation) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, text.length() / MIN_CHUNK_LENGTH));
+        return match(text, depthCap, colorCount, cancellation, pool, chunkCount);
+    }
+    
+    static DelimiterPairs match(CharSequence text, int depthCap, int colorCount, CancellationCheck cancellation,
+                                ForkJoinPool pool, int chunkCount) {
+        ParallelBracketMatcher matcher = new ParallelBracketMatcher(text, depthCap, colorCount);
+        int length = text.length();
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>(chunkCount);
+        for (int c = 0; c < chunkCount; c++) {
+            int start = (int) ((long) length * c / chunkCount);
+            int end = (int) ((long) length * (c + 1) / chunkCount);
+            tasks.add(pool.submit(() -> matcher.matchChunk(start, end)));
+        }
+        
+        Chunk[] chunks = new Chunk[chunkCount];
+        try {
+            for (int c = 0; c < chunkCount; c++) {
+                chunks[c] = await(tasks.get(c), cancellation);
+            }
+        } finally {
+            // Stops the remaining chunks early when waiting was canceled
+            matcher.canceled = true;
+        }
+        return matcher.combine(chunks);
+    }
+    
+    // Cancellation may be tied to the calling thread, so it's checked here rather than in the pool
+    private static Chunk await(ForkJoinTask<Chunk> task, CancellationCheck cancellation) {
+        while (true) {
+            cancellation.checkCanceled();
+            try {
+                return task.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+    
+    private Chunk matchChunk(int start, int end) {
+        Chunk chunk = new Chunk();
+        DelimiterMatcher.PositionStack[] stacks = new DelimiterMatcher.PositionStack[BRACKET_TYPES];
+        for (int type = 0; type < BRACKET_TYPES; type++) {
+            stacks[type] = new DelimiterMatcher.PositionStack();
+        }
+        
+        for (int i = start; i < end; i++) {
+            if ((i - start) % CANCEL_CHECK_INTERVAL == 0 && canceled) {
+                return chunk;
+            }
+            char ch = text.charAt(i);
+            int type;
+            boolean closing;
+            if (ch == '(' || ch == ')') {
+                type = 0;
+                closing = ch == ')';
+            } else if (ch == '{' || ch == '}') {
+                type = 1;
+                closing = ch == '}';
+            } else if (ch == '[' || ch == ']') {
+                type = 2;
+                closing = ch == ']';
+            } else {
+                continue;
+            }
+            
+            DelimiterMatcher.PositionStack stack = stacks[type];
+            if (!closing) {
+                stack.push(i);
+            } else if (stack.isEmpty()) {
+                chunk.addEvent(i, i, type, -1);
+            } else {
+                int openOffset = stack.pop();
+                chunk.addEvent(openOffset, i, type, stack.size());
+            }
+        }
+        
+        for (int type = 0; type < BRACKET_TYPES; type++) {
+            chunk.openers[type] = stacks[type].toArray();
+        }
+        return chunk;
+    }
+    
+    private DelimiterPairs combine(Chunk[] chunks) {
+        int eventCount = 0;
+        for (Chunk chunk : chunks) {
+            eventCount += chunk.size;
+        }
+        DelimiterPairs pairs = new DelimiterPairs(Math.max(16, eventCount));
+        
+        // Brackets left open by the chunks so far
+        DelimiterMatcher.PositionStack[] open = new DelimiterMatcher.PositionStack[BRACKET_TYPES];
+        for (int type = 0; type < BRACKET_TYPES; type++) {
+            open[type] = new DelimiterMatcher.PositionStack();
+        }
+        
+        for (Chunk chunk : chunks) {
+            for (int e = 0; e < chunk.size; e++) {
+                int type = chunk.types[e];
+                int localDepth = chunk.depths[e];
+                DelimiterMatcher.PositionStack stack = open[type];
+                int openOffset;
+                int depth;
+                if (localDepth >= 0) {
+                    // Matched within the chunk, on top of what earlier chunks left open
+                    openOffset = chunk.openOffsets[e];
+                    depth = stack.size() + localDepth;
+                } else if (!stack.isEmpty()) {
+                    openOffset = stack.pop();
+                    depth = stack.size();
+                } else {
+                    continue;
+                }
+                if (depth < depthCap) {
+                    pairs.addBracket(openOffset, chunk.closeOffsets[e], type, depth % colorCount);
+                }
+            }
+            for (int type = 0; type < BRACKET_TYPES; type++) {
+                open[type].pushAll(chunk.openers[type]);
+            }
+        }
+        return pairs;
+    }
+    
+    /**
+     * Closers of one chunk in text order: pairs matched within the chunk with their depth in it,
+     * and closers left for the combine step with a depth of -1.
+     */
+    private static class Chunk {
+        private int[] openOffsets = new int[64];
+        private int[] closeOffsets = new int[64];
+        private byte[] types = new byte[64];
+        private int[] depths = new int[64];
+        private int size;
+        // Openers still open at the end of the chunk by type, bottom of the stack first
+        private final int[][] openers = new int[BRACKET_TYPES][];
+        
+        void addEvent(int openOffset, int closeOffset, int type, int depth) {
+            if (size == closeOffsets.length) {
+                int capacity = size * 2;
+                openOffsets = Arrays.copyOf(openOffsets, capacity);
+                closeOffsets = Arrays.copyOf(closeOffsets, capacity);
+                types = Arrays.copyOf(types, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+            openOffsets[size] = openOffset;
+            closeOffsets[size] = closeOffset;
+            types[size] = (byte) type;
+            depths[size] = depth;
+            size++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one phase of coloring a file, see {@link ScanMetrics}.
+ */
+@Name("me.seungjun.colorfuldelimiter.Phase")
+@Label("Delimiter Coloring Phase")
+@Category("Colorful Delimiter")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    
+    @Label("Phase")
+    String phase;
+    
+    @Label("Language")
+    String language;
+    
+    @Label("Scan Mode")
+    String mode;
+    
+    @Label("Text Length")
+    @Description("Length of the text in characters")
+    int textLength;
+    
+    @Label("Pair Count")
+    int pairCount;
+    
+    @Label("Skip Range Count")
+    @Description("Comments and strings found")
+    int skipRangeCount;
+    
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
\ No newline at end of file
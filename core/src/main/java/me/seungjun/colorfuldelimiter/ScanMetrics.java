@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import jdk.jfr.EventType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time and allocation of each phase of coloring a file, by phase and language. Every measurement is
+ * added to totals for the session and, while a flight recording is running, also recorded as a
+ * {@link PhaseEvent}, so slow highlighting can be traced to a phase and file type.
+ */
+public class ScanMetrics {
+    
+    public enum Phase {
+        SCAN("Text scan"),
+        TOKEN_SCAN("Lexer scan"),
+        RESCAN("Rescan"),
+        LOAD("Stored result"),
+        INDEX("Index"),
+        NESTING("Nesting index"),
+        STREAM_INDEX("Stream index"),
+        STREAM_WINDOW("Stream window"),
+        ANNOTATE("Annotations");
+        
+        private final String label;
+        
+        Phase(String label) {
+            this.label = label;
+        }
+        
+        public String getLabel() {
+            return label;
+        }
+    }
+    
+    private static final ScanMetrics INSTANCE = new ScanMetrics();
+    
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+    
+    private static final EventType PHASE_EVENT = EventType.getEventType(PhaseEvent.class);
+    
+    // Filled for every phase up front, so that only the per-language maps are written concurrently
+    private final Map<Phase, ConcurrentMap<String, Totals>> totals = new EnumMap<>(Phase.class);
+    
+    private ScanMetrics() {
+        for (Phase phase : Phase.values()) {
+            totals.put(phase, new ConcurrentHashMap<>());
+        }
+    }
+    
+    public static ScanMetrics getInstance() {
+        return INSTANCE;
+    }
+    
+    public Sample start(Phase phase, String language, int textLength) {
+        return new Sample(phase, language, textLength);
+    }
+    
+    /**
+     * Starts a phase that runs in many short steps on one thread, such as annotating the leaves of a file
+     * in one highlighting pass, and is counted once. Only the time inside the steps is added up.
+     */
+    public Pass startPass(Phase phase, String language, int textLength) {
+        return new Pass(phase, language, textLength);
+    }
+    
+    public void reset() {
+        for (ConcurrentMap<String, Totals> languages : totals.values()) {
+            languages.clear();
+        }
+    }
+    
+    /**
+     * Returns the totals as a table, slowest phase and language first.
+     */
+    public String report() {
+        List<Totals> rows = new ArrayList<>();
+        for (ConcurrentMap<String, Totals> languages : totals.values()) {
+            rows.addAll(languages.values());
+        }
+        rows.sort(Comparator.comparingLong((Totals t) -> t.nanos.sum()).reversed());
+        
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-14s %-16s %8s %10s %9s %9s %10s %10s %10s%n", "Phase", "Language",
+            "Count", "Total ms", "Avg ms", "Max ms", "Chars", "Pairs", "Allocated"));
+        for (Totals row : rows) {
+            long count = row.count.sum();
+            long nanos = row.nanos.sum();
+            out.append(String.format(Locale.ROOT, "%-14s %-16s %8d %10.1f %9.2f %9.1f %10s %10d %10s%n",
+                row.phase.getLabel(), row.language, count, nanos / 1e6, count > 0 ? nanos / 1e6 / count : 0,
+                row.maxNanos.get() / 1e6, formatAmount(row.chars.sum(), ""), row.pairs.sum(),
+                ALLOCATIONS != null ? formatAmount(row.allocatedBytes.sum(), "B") : "n/a"));
+        }
+        if (rows.isEmpty()) {
+            out.append("No files colored yet").append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+    
+    private static String formatAmount(long amount, String unit) {
+        if (amount >= 1L << 30) {
+            return String.format(Locale.ROOT, "%.1f G%s", amount / (double) (1L << 30), unit);
+        }
+        if (amount >= 1L << 20) {
+            return String.format(Locale.ROOT, "%.1f M%s", amount / (double) (1L << 20), unit);
+        }
+        if (amount >= 1L << 10) {
+            return String.format(Locale.ROOT, "%.1f K%s", amount / (double) (1L << 10), unit);
+        }
+        return amount + (unit.isEmpty() ? "" : " " + unit);
+    }
+    
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations;
+            }
+        }
+        return null;
+    }
+    
+    private static long allocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+    
+    // Events are only created while a recording has them enabled
+    private static PhaseEvent beginEvent() {
+        if (!PHASE_EVENT.isEnabled()) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+    
+    private static void commitEvent(PhaseEvent event, Phase phase, String language, ScanMode mode, int textLength,
+                                    int pairCount, int skipRangeCount, long allocated) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.name();
+            event.language = language;
+            event.mode = mode != null ? mode.name() : null;
+            event.textLength = textLength;
+            event.pairCount = pairCount;
+            event.skipRangeCount = skipRangeCount;
+            event.allocatedBytes = allocated;
+            event.commit();
+        }
+    }
+    
+    private void add(Phase phase, String language, int textLength, int pairCount, long nanos, long allocated) {
+        Totals row = totals.get(phase).computeIfAbsent(language, key -> new Totals(phase, language));
+        row.count.increment();
+        row.nanos.add(nanos);
+        row.maxNanos.accumulate(nanos);
+        row.chars.add(textLength);
+        row.pairs.add(pairCount);
+        row.allocatedBytes.add(allocated);
+    }
+    
+    /**
+     * One phase being measured on the current thread.
+     */
+    public class Sample {
+        private final Phase phase;
+        private final String language;
+        private final int textLength;
+        private final PhaseEvent event;
+        private final long startNanos;
+        private final long startAllocated;
+        
+        private Sample(Phase phase, String language, int textLength) {
+            this.phase = phase;
+            this.language = language;
+            this.textLength = textLength;
+            event = beginEvent();
+            startAllocated = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+        
+        public void finish(ScanMode mode, int pairCount, int skipRangeCount) {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = allocatedBytes() - startAllocated;
+            
+            commitEvent(event, phase, language, mode, textLength, pairCount, skipRangeCount, allocated);
+            add(phase, language, textLength, pairCount, nanos, allocated);
+        }
+        
+        public void finish(DelimiterMatcher.ScanResult result) {
+            finish(result.getMode(), result.getPairs().size(),
+                result.getCommentRanges().size() + result.getStringRanges().size());
+        }
+    }
+    
+    /**
+     * One phase measured in steps, see {@link #startPass}. Its event spans the whole pass.
+     */
+    public class Pass {
+        private final Phase phase;
+        private final String language;
+        private final int textLength;
+        private final PhaseEvent event;
+        private long nanos;
+        private long allocated;
+        private int pairCount;
+        private long stepStartNanos;
+        private long stepStartAllocated;
+        
+        private Pass(Phase phase, String language, int textLength) {
+            this.phase = phase;
+            this.language = language;
+            this.textLength = textLength;
+            event = beginEvent();
+        }
+        
+        public void beginStep() {
+            stepStartAllocated = allocatedBytes();
+            stepStartNanos = System.nanoTime();
+        }
+        
+        public void endStep(int stepPairCount) {
+            nanos += System.nanoTime() - stepStartNanos;
+            allocated += allocatedBytes() - stepStartAllocated;
+            pairCount += stepPairCount;
+        }
+        
+        public void finish() {
+            commitEvent(event, phase, language, null, textLength, pairCount, 0, allocated);
+            add(phase, language, textLength, pairCount, nanos, allocated);
+        }
+    }
+    
+    private static class Totals {
+        private final Phase phase;
+        private final String language;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder chars = new LongAdder();
+        private final LongAdder pairs = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+        
+        Totals(Phase phase, String language) {
+            this.phase = phase;
+            this.language = language;
+        }
+    }
+}
\ No newline at end of file
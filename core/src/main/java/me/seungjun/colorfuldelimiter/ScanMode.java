@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+/**
+ * How much of the matching a scan does, from everything down to nothing. Files that are too large,
+ * minified or too slow to scan step down to a cheaper mode; see {@link ScanPolicy}.
+ */
+public enum ScanMode {
+    FULL("brackets and quotes are colored"),
+    NO_QUOTES("quotes are not colored in large files"),
+    DEPTH_CAPPED("quotes and deeply nested brackets are not colored in minified files"),
+    BRACKETS_ONLY("brackets are matched without recognizing comments and strings, because matching took too long"),
+    OFF("delimiters are not colored in very large files");
+    
+    private final String description;
+    
+    ScanMode(String description) {
+        this.description = description;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean pairsQuotes() {
+        return this == FULL;
+    }
+    
+    public boolean skipsCommentsAndStrings() {
+        return this == FULL || this == NO_QUOTES || this == DEPTH_CAPPED;
+    }
+}
\ No newline at end of file
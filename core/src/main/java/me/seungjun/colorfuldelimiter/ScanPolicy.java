@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Picks the {@link ScanMode} for a text and runs the scan within a time budget. Large files lose quote
+ * coloring, minified files (very long lines) also lose deeply nested brackets, and a scan that runs out
+ * of time is redone matching brackets only, so a highlighting pass never takes much longer than the budget.
+ */
+public class ScanPolicy {
+    
+    private final int largeFileLength;
+    private final int maxFileLength;
+    private final int longLineLength;
+    private final int depthCap;
+    private final long timeBudgetNanos;
+    private final int colorCount;
+    private final CancellationCheck cancellation;
+    
+    public ScanPolicy(int largeFileLength, int maxFileLength, int longLineLength, int depthCap, long timeBudgetMillis,
+                      int colorCount, CancellationCheck cancellation) {
+        this.largeFileLength = largeFileLength;
+        this.maxFileLength = maxFileLength;
+        this.longLineLength = longLineLength;
+        this.depthCap = depthCap;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.colorCount = colorCount;
+        this.cancellation = cancellation;
+    }
+    
+    /**
+     * Identifies the settings that decide what a scan finds, for keeping results across sessions.
+     * The time budget is left out; it only decides whether a scan completes.
+     */
+    public String getCacheKey() {
+        return largeFileLength + "/" + maxFileLength + "/" + longLineLength + "/" + depthCap + "/" + colorCount;
+    }
+    
+    public ScanMode selectMode(CharSequence text) {
+        int length = text.length();
+        if (length > maxFileLength) {
+            return ScanMode.OFF;
+        }
+        if (hasLongLine(text, 0, length)) {
+            return ScanMode.DEPTH_CAPPED;
+        }
+        if (length > largeFileLength) {
+            return ScanMode.NO_QUOTES;
+        }
+        return ScanMode.FULL;
+    }
+    
+    /**
+     * Scans the text, from the lexer's tokens when token streams are given and otherwise with the delimiter profile.
+     * The streams start at the given offset, see {@link DelimiterMatcher#rescanTokens}.
+     */
+    public DelimiterMatcher.ScanResult scan(CharSequence text, DelimiterProfile profile, IntFunction<DelimiterTokenStream> tokens) {
+        ScanMode mode = selectMode(text);
+        long deadline = deadline();
+        try {
+            return scan(text, profile, tokens, mode, deadline);
+        } catch (DelimiterMatcher.BudgetExceededException e) {
+            return DelimiterMatcher.scan(text, profile, ScanMode.BRACKETS_ONLY, depthCap, DelimiterMatcher.NO_DEADLINE,
+                colorCount, cancellation);
+        }
+    }
+    
+    /**
+     * Updates a previous scan after an edit, see {@link DelimiterMatcher#rescan} and {@link DelimiterMatcher#rescanTokens}.
+     * Only the lines around the edit are checked for minified content.
+     */
+    public DelimiterMatcher.ScanResult rescan(DelimiterMatcher.ScanResult previous, CharSequence text, DelimiterProfile profile,
+                                              IntFunction<DelimiterTokenStream> tokens, int dirtyStart, int oldDirtyEnd,
+                                              int newDirtyEnd) {
+        int length = text.length();
+        boolean sameScanner = tokens != null ? previous.isFromTokens()
+            : !previous.isFromTokens() && previous.getProfile() == profile;
+        boolean stillFull = previous.getMode() == ScanMode.FULL && sameScanner && previous.getColorCount() == colorCount
+            && length <= largeFileLength && !hasLongLine(text, dirtyStart, newDirtyEnd);
+        if (!stillFull) {
+            return scan(text, profile, tokens);
+        }
+        
+        try {
+            if (tokens != null) {
+                return DelimiterMatcher.rescanTokens(previous, text, tokens, dirtyStart, oldDirtyEnd, newDirtyEnd, deadline());
+            }
+            return DelimiterMatcher.rescan(previous, text, dirtyStart, oldDirtyEnd, newDirtyEnd, deadline());
+        } catch (DelimiterMatcher.BudgetExceededException e) {
+            return DelimiterMatcher.scan(text, profile, ScanMode.BRACKETS_ONLY, depthCap, DelimiterMatcher.NO_DEADLINE,
+                colorCount, cancellation);
+        }
+    }
+    
+    /**
+     * Scans the text like {@link #scan}, but only as far as the delimiters in [visibleStart, visibleEnd) need,
+     * see {@link DelimiterMatcher#scanVisible}. {@link #finish} scans the rest with a new time budget.
+     */
+    public DelimiterMatcher.ScanResult scanVisible(CharSequence text, DelimiterProfile profile,
+                                                   IntFunction<DelimiterTokenStream> tokens, int visibleStart, int visibleEnd) {
+        ScanMode mode = selectMode(text);
+        long deadline = deadline();
+        try {
+            DelimiterTokenStream stream = tokens != null && mode.skipsCommentsAndStrings() ? tokens.apply(0) : null;
+            return DelimiterMatcher.scanVisible(text, profile, stream, mode, depthCap, deadline, colorCount, cancellation,
+                visibleStart, visibleEnd);
+        } catch (DelimiterMatcher.BudgetExceededException e) {
+            return DelimiterMatcher.scan(text, profile, ScanMode.BRACKETS_ONLY, depthCap, DelimiterMatcher.NO_DEADLINE,
+                colorCount, cancellation);
+        }
+    }
+    
+    /**
+     * Scans the rest of the text after {@link #scanVisible} stopped, see {@link DelimiterMatcher#finish}.
+     */
+    public DelimiterMatcher.ScanResult finish(DelimiterMatcher.ScanResult stopped, CharSequence text, DelimiterProfile profile,
+                                              IntFunction<DelimiterTokenStream> tokens) {
+        try {
+            return DelimiterMatcher.finish(stopped, text, tokens, depthCap, deadline());
+        } catch (DelimiterMatcher.BudgetExceededException e) {
+            return DelimiterMatcher.scan(text, profile, ScanMode.BRACKETS_ONLY, depthCap, DelimiterMatcher.NO_DEADLINE,
+                colorCount, cancellation);
+        }
+    }
+    
+    private DelimiterMatcher.ScanResult scan(CharSequence text, DelimiterProfile profile, IntFunction<DelimiterTokenStream> tokens,
+                                             ScanMode mode, long deadline) {
+        DelimiterTokenStream stream = tokens != null && mode.skipsCommentsAndStrings() ? tokens.apply(0) : null;
+        if (stream != null) {
+            return DelimiterMatcher.scanTokens(text, stream, mode, depthCap, deadline, colorCount, cancellation);
+        }
+        return DelimiterMatcher.scan(text, profile, mode, depthCap, deadline, colorCount, cancellation);
+    }
+    
+    private long deadline() {
+        return timeBudgetNanos > 0 ? System.nanoTime() + timeBudgetNanos : DelimiterMatcher.NO_DEADLINE;
+    }
+    
+    // Whether any line overlapping [start, end) is longer than the long line limit
+    private boolean hasLongLine(CharSequence text, int start, int end) {
+        int length = text.length();
+        int lineStart = Math.min(start, length);
+        while (lineStart > 0 && text.charAt(lineStart - 1) != '\n') {
+            lineStart--;
+            if (start - lineStart > longLineLength) {
+                return true;
+            }
+        }
+        for (int i = lineStart; i < length; i++) {
+            if (text.charAt(i) == '\n') {
+                if (i >= end) {
+                    return false;
+                }
+                lineStart = i + 1;
+            } else if (i - lineStart >= longLineLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
\ No newline at end of file
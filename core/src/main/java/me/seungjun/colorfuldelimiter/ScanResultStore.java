@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Scan results kept on disk across sessions, one file per text, keyed by a hash of the text and of
+ * everything else that decides what a scan finds. The directory is bounded in size: the least recently
+ * used results are deleted first. A file that is damaged or was written by another version is ignored
+ * and deleted, so a failing cache only costs the scan it was meant to save.
+ * <p>
+ * Restored results have no checkpoints, so the first edit after loading one rescans the whole text.
+ */
+public class ScanResultStore {
+    
+    // Bump when the file format or what a scan finds changes
+    private static final int VERSION = 2;
+    private static final int MAGIC = 0x43445352;
+    // Magic, version, key, text length, payload length and payload checksum
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 4 + 4 + 4;
+    private static final String SUFFIX = ".scan";
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    private final Path directory;
+    private final long maxBytes;
+    // File sizes by key, least recently used first; loaded from the directory on first use
+    private LinkedHashMap<Long, Long> entries;
+    private long totalBytes;
+    
+    public ScanResultStore(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Returns the key of a text. The variant names whatever else the result depends on, such as the
+     * language and the scan settings.
+     */
+    public static long key(CharSequence text, String variant) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ text.length()) * FNV_PRIME;
+        for (int i = 0; i < variant.length(); i++) {
+            hash = (hash ^ variant.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ VERSION) * FNV_PRIME;
+        // Final mix from MurmurHash3, so that similar texts get unrelated keys
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * Returns the stored result for the key, or null when there is none or it can't be read.
+     */
+    public DelimiterMatcher.ScanResult load(long key, int textLength, DelimiterProfile profile, CancellationCheck cancellation) {
+        if (!contains(key)) {
+            return null;
+        }
+        
+        Path file = fileOf(key);
+        DelimiterMatcher.ScanResult result;
+        // Read rather than mapped: on Windows a mapped file can't be replaced or deleted until the mapping
+        // is garbage collected
+        try {
+            result = read(ByteBuffer.wrap(Files.readAllBytes(file)), key, textLength, profile, cancellation);
+        } catch (IOException | RuntimeException e) {
+            // Damaged beyond what the checksum catches, e.g. truncated
+            result = null;
+        }
+        if (result == null) {
+            remove(key);
+            return null;
+        }
+        
+        try {
+            // Keeps the recency across sessions
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Only affects which result is evicted first
+        }
+        return result;
+    }
+    
+    /**
+     * Stores a result, evicting the least recently used ones when the directory gets too large.
+     */
+    public void save(long key, int textLength, DelimiterMatcher.ScanResult result) {
+        ByteBuffer buffer = write(key, textLength, result);
+        if (buffer.capacity() > maxBytes) {
+            return;
+        }
+        
+        Path file = fileOf(key);
+        try {
+            Files.createDirectories(directory);
+            // Written aside and moved into place, so a crash never leaves a partial file under the key
+            Path temporary = Files.createTempFile(directory, "scan", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return;
+        }
+        added(key, buffer.capacity());
+    }
+    
+    private synchronized boolean contains(long key) {
+        return loadedEntries().get(key) != null;
+    }
+    
+    private synchronized void added(long key, long size) {
+        Long previous = loadedEntries().put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        Iterator<Map.Entry<Long, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<Long, Long> eldest = iterator.next();
+            if (eldest.getKey() == key) {
+                continue;
+            }
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            deleteQuietly(fileOf(eldest.getKey()));
+        }
+    }
+    
+    private synchronized void remove(long key) {
+        Long size = loadedEntries().remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(fileOf(key));
+    }
+    
+    private LinkedHashMap<Long, Long> loadedEntries() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        List<Path> files = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> stream = Files.list(directory)) {
+                stream.forEach(files::add);
+            } catch (IOException e) {
+                return entries;
+            }
+        }
+        
+        Map<Path, FileTime> modified = new HashMap<>();
+        for (Path file : files) {
+            try {
+                modified.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                // Deleted in the meantime
+            }
+        }
+        files.removeIf(file -> !modified.containsKey(file));
+        files.sort(Comparator.comparing(modified::get));
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (!name.endsWith(SUFFIX)) {
+                // Left over from a save that didn't finish
+                deleteQuietly(file);
+                continue;
+            }
+            try {
+                long key = Long.parseUnsignedLong(name.substring(0, name.length() - SUFFIX.length()), 16);
+                long size = Files.size(file);
+                entries.put(key, size);
+                totalBytes += size;
+            } catch (NumberFormatException | IOException e) {
+                deleteQuietly(file);
+            }
+        }
+        return entries;
+    }
+    
+    private Path fileOf(long key) {
+        return directory.resolve(Long.toHexString(key) + SUFFIX);
+    }
+    
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Tried again on the next eviction or failed load
+        }
+    }
+    
+    private static ByteBuffer write(long key, int textLength, DelimiterMatcher.ScanResult result) {
+        DelimiterPairs pairs = result.getPairs();
+        SkipRangeIndex comments = result.getCommentRanges();
+        SkipRangeIndex strings = result.getStringRanges();
+        int payloadInts = 2 + 1 + pairs.size() * 3 + 1 + comments.size() * 2 + 1 + strings.size() * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + payloadInts * 4);
+        
+        buffer.position(HEADER_LENGTH);
+        IntBuffer payload = buffer.slice().asIntBuffer();
+        payload.put(result.getMode().ordinal());
+        payload.put(result.getColorCount());
+        pairs.writeTo(payload);
+        comments.writeTo(payload);
+        strings.writeTo(payload);
+        
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer);
+        buffer.rewind();
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(key).putInt(textLength).putInt(payloadInts * 4)
+            .putInt((int) checksum.getValue());
+        buffer.rewind();
+        return buffer;
+    }
+    
+    private static DelimiterMatcher.ScanResult read(ByteBuffer buffer, long key, int textLength, DelimiterProfile profile,
+                                                    CancellationCheck cancellation) {
+        if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != key || buffer.getInt() != textLength) {
+            return null;
+        }
+        int payloadLength = buffer.getInt();
+        int expectedChecksum = buffer.getInt();
+        if (payloadLength != buffer.remaining() || payloadLength % 4 != 0) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate());
+        if ((int) checksum.getValue() != expectedChecksum) {
+            return null;
+        }
+        
+        IntBuffer payload = buffer.asIntBuffer();
+        ScanMode[] modes = ScanMode.values();
+        int mode = payload.get();
+        int colorCount = payload.get();
+        if (mode < 0 || mode >= modes.length) {
+            return null;
+        }
+        DelimiterPairs pairs = DelimiterPairs.readFrom(payload);
+        SkipRangeIndex comments = SkipRangeIndex.readFrom(payload);
+        SkipRangeIndex strings = SkipRangeIndex.readFrom(payload);
+        return new DelimiterMatcher.ScanResult(pairs, comments, strings, Collections.emptyList(), 0, false, 0, textLength,
+            modes[mode], profile, colorCount, cancellation);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The half-open [start, end) ranges of comments and string contents found by a scan, sorted by start.
+ * Rescans copy the ranges before and after an edit by index, and stored results write them out as is.
+ */
+public class SkipRangeIndex {
+    
+    private static final SkipRangeIndex EMPTY = new SkipRangeIndex(new int[0], new int[0], 0);
+    
+    private final int[] starts;
+    private final int[] ends;
+    private final int size;
+    
+    private SkipRangeIndex(int[] starts, int[] ends, int size) {
+        this.starts = starts;
+        this.ends = ends;
+        this.size = size;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getStart(int index) {
+        return starts[index];
+    }
+    
+    public int getEnd(int index) {
+        return ends[index];
+    }
+    
+    void writeTo(IntBuffer out) {
+        out.put(size);
+        out.put(starts, 0, size);
+        out.put(ends, 0, size);
+    }
+    
+    static SkipRangeIndex readFrom(IntBuffer in) {
+        int size = in.get();
+        if (size < 0 || size > in.remaining() / 2) {
+            throw new IllegalArgumentException("Bad range count: " + size);
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        int[] starts = new int[size];
+        int[] ends = new int[size];
+        in.get(starts);
+        in.get(ends);
+        return new SkipRangeIndex(starts, ends, size);
+    }
+    
+    public static class Builder {
+        // Packed as (start << 32 | end) so a primitive sort orders by start
+        private long[] ranges = new long[16];
+        private int count;
+        
+        public Builder add(int start, int end) {
+            if (end <= start) {
+                return this;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = ((long) start << 32) | (end & 0xFFFFFFFFL);
+            return this;
+        }
+        
+        public SkipRangeIndex build() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            
+            boolean sorted = true;
+            for (int i = 1; i < count && sorted; i++) {
+                sorted = ranges[i - 1] <= ranges[i];
+            }
+            if (!sorted) {
+                Arrays.sort(ranges, 0, count);
+            }
+            
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            int size = 0;
+            for (int i = 0; i < count; i++) {
+                int start = (int) (ranges[i] >>> 32);
+                int end = (int) ranges[i];
+                if (size > 0 && start < ends[size - 1]) {
+                    // Overlapping - extend the previous range. Adjacent ranges stay apart so that
+                    // ranges found before and after a scanner checkpoint can be told apart.
+                    ends[size - 1] = Math.max(ends[size - 1], end);
+                } else {
+                    starts[size] = start;
+                    ends[size] = end;
+                    size++;
+                }
+            }
+            return new SkipRangeIndex(starts, ends, size);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,654 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Colors the delimiters of files too large to scan as a whole, a window at a time, straight from the
+ * memory-mapped file. {@link #index} makes one pass over the file and keeps only sparse checkpoints
+ * of the bracket depths and string counts, and the few things a window can't tell from its own text:
+ * strings and comments longer than a checkpoint interval, kinds that never close, and openers that
+ * are never closed. {@link #window} then scans from the checkpoint before the window. Memory is
+ * proportional to the file size over the checkpoint interval, not to the number of delimiters.
+ *
+ * <p>Colors are those of {@link DelimiterMatcher}, except that raw, verbatim and long strings are
+ * read as ordinary quotes and brackets. Offsets are in characters as the IDE decodes the file, UTF-8
+ * or a single-byte charset, with each line separator counted as one character.
+ */
+public class StreamingMatcher {
+    
+    // Bytes between checkpoints, so a window is scanned from at most this far before its start
+    static final int CHECKPOINT_INTERVAL = 64 << 10;
+    // Strings and comments this long are jumped over by windows instead of being scanned again
+    static final int LONG_TOKEN = 64 << 10;
+    // Openers nested deeper are colored even if they never close, to bound memory on runaway nesting
+    static final int MAX_TRACKED_DEPTH = 1 << 16;
+    
+    private static final int MAP_SIZE = 8 << 20;
+    // Mapped past the end of each map so markers and triple quotes starting just before it can be read
+    private static final int MAP_OVERLAP = 16;
+    
+    private static final int BLOCK_COMMENT_KIND = 0;
+    // Then one kind per quote character and length, see quoteKind
+    private static final int KIND_COUNT = 7;
+    
+    private static final byte LONG_COMMENT = 0;
+    private static final byte LONG_STRING = 1;
+    // A single-line string that didn't close on a long line
+    private static final byte LONG_FAILED_STRING = 2;
+    
+    private static final int CLOSED = 0;
+    private static final int FAILED_ON_LINE = 1;
+    private static final int UNTERMINATED = 2;
+    
+    /**
+     * The result of the first pass, enough to scan any window of the unchanged file.
+     */
+    public static class Index {
+        private final long byteLength;
+        private final long charLength;
+        private final DelimiterProfile profile;
+        private final boolean utf8;
+        private final int bomLength;
+        private final long[] checkpointBytes;
+        private final long[] checkpointChars;
+        // Three bracket depths, then three string counts, per checkpoint
+        private final int[] checkpointStates;
+        private final long[] longTokenStarts;
+        private final long[] longTokenEnds;
+        private final byte[] longTokenKinds;
+        private final long[] disabledFrom;
+        private final long[] unclosedOpeners;
+        
+        private Index(Pass pass) {
+            this.byteLength = pass.length;
+            this.charLength = pass.chars;
+            this.profile = pass.profile;
+            this.utf8 = pass.utf8;
+            this.bomLength = pass.start;
+            this.checkpointBytes = pass.checkpointBytes.toArray();
+            this.checkpointChars = pass.checkpointChars.toArray();
+            this.checkpointStates = Arrays.copyOf(pass.checkpointStates, pass.checkpointChars.size() * 6);
+            this.longTokenStarts = pass.longTokenStarts.toArray();
+            this.longTokenEnds = pass.longTokenEnds.toArray();
+            this.longTokenKinds = Arrays.copyOf(pass.longTokenKinds, longTokenStarts.length);
+            this.disabledFrom = pass.disabledFrom;
+            LongList openers = new LongList();
+            for (LongList stack : pass.openers) {
+                for (int i = 0; i < stack.size(); i++) {
+                    openers.add(stack.get(i));
+                }
+            }
+            this.unclosedOpeners = openers.toArray();
+            Arrays.sort(unclosedOpeners);
+        }
+        
+        public long getByteLength() {
+            return byteLength;
+        }
+        
+        /**
+         * Length of the decoded text, which must equal the document's for the offsets to apply.
+         */
+        public long getCharLength() {
+            return charLength;
+        }
+        
+        public int getCheckpointCount() {
+            return checkpointBytes.length;
+        }
+    }
+    
+    /**
+     * Makes the first pass over the file. The charset must be UTF-8 or encode every character in a single
+     * byte; a byte order mark of the given length is skipped.
+     */
+    public static Index index(FileChannel channel, DelimiterProfile profile, boolean utf8, int bomLength,
+                              CancellationCheck cancellation) throws IOException {
+        try {
+            Pass pass = new Pass(new MappedText(channel), profile, utf8, bomLength, null, 1, cancellation);
+            // Also for an empty file, windows start from a checkpoint
+            pass.addCheckpoint(pass.start);
+            pass.run(pass.start, 0, Long.MAX_VALUE);
+            return new Index(pass);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    /**
+     * Returns the delimiters starting in [start, end) of the decoded text, by character offset.
+     */
+    public static DelimiterIndex window(FileChannel channel, Index index, int start, int end, int colorCount,
+                                        CancellationCheck cancellation) throws IOException {
+        Pass pass;
+        try {
+            pass = new Pass(new MappedText(channel), index.profile, index.utf8, index.bomLength, index, colorCount,
+                cancellation);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        pass.windowStart = start;
+        pass.windowEnd = end;
+        
+        // The last checkpoint at or before the window start, there is always one at the start of the text
+        int checkpoint = Arrays.binarySearch(index.checkpointChars, start);
+        if (checkpoint < 0) {
+            checkpoint = -checkpoint - 2;
+        }
+        while (checkpoint > 0 && index.checkpointChars[checkpoint - 1] == index.checkpointChars[checkpoint]) {
+            // Bytes that decode to nothing, take the first one
+            checkpoint--;
+        }
+        for (int type = 0; type < 3; type++) {
+            pass.depths[type] = index.checkpointStates[checkpoint * 6 + type];
+            pass.stringCounts[type] = index.checkpointStates[checkpoint * 6 + 3 + type];
+        }
+        try {
+            pass.run(index.checkpointBytes[checkpoint], index.checkpointChars[checkpoint], end);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return DelimiterIndex.sorted(pass.entries, pass.entryCount);
+    }
+    
+    private static class Pass {
+        private final MappedText text;
+        private final long length;
+        private final DelimiterProfile profile;
+        private final boolean utf8;
+        private final int start;
+        // Null while building it
+        private final Index index;
+        private final int colorCount;
+        private final CancellationCheck cancellation;
+        
+        private final int[] depths = new int[3];
+        private final int[] stringCounts = new int[3];
+        private final long[] failedLineEnds = {-1, -1, -1};
+        private long lastFailedLineEnd = -1;
+        private long chars;
+        // Set after the end of a string or comment
+        private long tokenEnd;
+        
+        // Built by the first pass
+        private final LongList checkpointBytes = new LongList();
+        private final LongList checkpointChars = new LongList();
+        private int[] checkpointStates = new int[6 * 16];
+        private final LongList longTokenStarts = new LongList();
+        private final LongList longTokenEnds = new LongList();
+        private byte[] longTokenKinds = new byte[16];
+        private final long[] disabledFrom;
+        // Positions of the unclosed openers of each bracket type, up to MAX_TRACKED_DEPTH
+        private final LongList[] openers = {new LongList(), new LongList(), new LongList()};
+        
+        // Collected by a window, packed as for DelimiterIndex.sorted
+        private int windowStart;
+        private int windowEnd;
+        private long[] entries = new long[64];
+        private int entryCount;
+        
+        Pass(MappedText text, DelimiterProfile profile, boolean utf8, int start, Index index, int colorCount,
+             CancellationCheck cancellation) {
+            this.text = text;
+            this.length = text.length;
+            this.profile = profile;
+            this.utf8 = utf8;
+            this.start = (int) Math.min(start, length);
+            this.index = index;
+            this.colorCount = colorCount;
+            this.cancellation = cancellation;
+            if (index != null) {
+                this.disabledFrom = index.disabledFrom;
+            } else {
+                this.disabledFrom = new long[KIND_COUNT];
+                Arrays.fill(disabledFrom, Long.MAX_VALUE);
+            }
+        }
+        
+        /**
+         * Scans from a code position until the character offset reaches the stop offset in code.
+         */
+        void run(long position, long charOffset, long stopChars) {
+            chars = charOffset;
+            long nextCheckpoint = position;
+            long nextCancelCheck = position;
+            while (position < length && chars < stopChars) {
+                if (position >= nextCancelCheck) {
+                    cancellation.checkCanceled();
+                    nextCancelCheck = position + CHECKPOINT_INTERVAL;
+                }
+                // Not on a line where a string failed to close, whose rescan depends on where the line ends
+                if (index == null && position >= nextCheckpoint && position > lastFailedLineEnd) {
+                    addCheckpoint(position);
+                    nextCheckpoint = position + CHECKPOINT_INTERVAL;
+                }
+                
+                char ch = text.get(position);
+                int charClass = profile.charClass(ch);
+                if (charClass == 0) {
+                    chars += width(position);
+                    position++;
+                    continue;
+                }
+                
+                if ((charClass & DelimiterProfile.COMMENT_START) != 0) {
+                    int marker = text.match(profile, position, true);
+                    if (marker > 0 && position < disabledFrom[BLOCK_COMMENT_KIND]) {
+                        if (blockComment(position, marker)) {
+                            position = advanceTo(position, tokenEnd);
+                        } else {
+                            // Never closes, so neither does any later one; the opener may still start a line comment
+                            disabledFrom[BLOCK_COMMENT_KIND] = position;
+                        }
+                        continue;
+                    }
+                    marker = text.match(profile, position, false);
+                    if (marker > 0) {
+                        lineComment(position, marker);
+                        position = advanceTo(position, tokenEnd);
+                        continue;
+                    }
+                }
+                
+                if ((charClass & DelimiterProfile.QUOTE) != 0) {
+                    int quoteIndex = quoteIndexOf(ch);
+                    int quoteLength = position + 2 < length && text.get(position + 1) == ch
+                        && text.get(position + 2) == ch ? 3 : 1;
+                    int kind = quoteKind(quoteIndex, quoteLength);
+                    boolean bounded = profile.isLineBounded(ch, quoteLength);
+                    boolean wordApostrophe = ch == '\'' && profile.hasWordApostrophes()
+                        && isLetterOrDigitBefore(position);
+                    if (position < disabledFrom[kind] && !(bounded && position < failedLineEnds[quoteIndex])
+                            && !wordApostrophe) {
+                        int outcome = string(position, ch, quoteLength, bounded);
+                        if (outcome == CLOSED) {
+                            long closeStart = tokenEnd - quoteLength;
+                            int colorIndex = (stringCounts[quoteIndex] + 10) % colorCount;
+                            emit(chars, quoteLength, colorIndex);
+                            long closeChars = chars + countChars(position, closeStart);
+                            emit(closeChars, quoteLength, colorIndex);
+                            if (closeStart > position + quoteLength) {
+                                // Empty strings don't advance the color
+                                stringCounts[quoteIndex]++;
+                            }
+                            chars = closeChars + quoteLength;
+                            position = tokenEnd;
+                            continue;
+                        }
+                        if (outcome == FAILED_ON_LINE) {
+                            // No later quote of this kind on the line can close either
+                            failedLineEnds[quoteIndex] = tokenEnd;
+                            lastFailedLineEnd = Math.max(lastFailedLineEnd, tokenEnd);
+                        } else {
+                            disabledFrom[kind] = position;
+                        }
+                    }
+                    chars++;
+                    position++;
+                    continue;
+                }
+                
+                bracket(ch, position);
+                chars++;
+                position++;
+            }
+        }
+        
+        private void bracket(char ch, long position) {
+            int type = ch == '(' || ch == ')' ? 0 : ch == '{' || ch == '}' ? 1 : ch == '[' || ch == ']' ? 2 : -1;
+            if (type < 0) {
+                return;
+            }
+            if (ch == '(' || ch == '{' || ch == '[') {
+                if (index == null) {
+                    if (depths[type] < MAX_TRACKED_DEPTH) {
+                        openers[type].add(position);
+                    }
+                } else if (Arrays.binarySearch(index.unclosedOpeners, position) < 0) {
+                    emit(chars, 1, depths[type] % colorCount);
+                }
+                depths[type]++;
+            } else if (depths[type] > 0) {
+                depths[type]--;
+                if (index == null && depths[type] < MAX_TRACKED_DEPTH) {
+                    openers[type].removeLast();
+                }
+                emit(chars, 1, depths[type] % colorCount);
+            }
+        }
+        
+        // Returns whether the comment closes, with its end in tokenEnd
+        private boolean blockComment(long position, int marker) {
+            int longToken = longToken(position);
+            if (longToken >= 0) {
+                tokenEnd = index.longTokenEnds[longToken];
+                return true;
+            }
+            char endChar = profile.getBlockCommentEndChar();
+            for (long i = position + marker; i < length; i++) {
+                if (((i - position) & 0xFFFFF) == 0) {
+                    cancellation.checkCanceled();
+                }
+                if (text.get(i) == endChar && text.matchEnd(profile, i) > 0) {
+                    tokenEnd = i + text.matchEnd(profile, i);
+                    addLongToken(position, tokenEnd, LONG_COMMENT);
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        // Ends before the line separator, which is then read as code
+        private void lineComment(long position, int marker) {
+            int longToken = longToken(position);
+            if (longToken >= 0) {
+                tokenEnd = index.longTokenEnds[longToken];
+                return;
+            }
+            long i = position + marker;
+            while (i < length && text.get(i) != '\n') {
+                if (((i - position) & 0xFFFFF) == 0) {
+                    cancellation.checkCanceled();
+                }
+                i++;
+            }
+            tokenEnd = i;
+            addLongToken(position, tokenEnd, LONG_COMMENT);
+        }
+        
+        /**
+         * Finds the end of a string: after its closing quote, or the end of the line on which a
+         * single-line string failed to close.
+         */
+        private int string(long position, char quoteChar, int quoteLength, boolean bounded) {
+            int longToken = longToken(position);
+            if (longToken >= 0) {
+                tokenEnd = index.longTokenEnds[longToken];
+                return index.longTokenKinds[longToken] == LONG_STRING ? CLOSED : FAILED_ON_LINE;
+            }
+            long i = position + quoteLength;
+            while (i < length) {
+                if (((i - position) & 0xFFFFF) == 0) {
+                    cancellation.checkCanceled();
+                }
+                char ch = text.get(i);
+                if (ch == '\\') {
+                    // Skipping the escaped character gives backslash runs the right parity; an escaped CRLF is one
+                    i += i + 2 < length && text.byteAt(i + 1) == '\r' && text.byteAt(i + 2) == '\n' ? 3 : 2;
+                } else if (ch == '\n' && bounded) {
+                    tokenEnd = i;
+                    addLongToken(position, tokenEnd, LONG_FAILED_STRING);
+                    return FAILED_ON_LINE;
+                } else if (ch == quoteChar && (quoteLength == 1 || i + 2 < length
+                        && text.get(i + 1) == quoteChar && text.get(i + 2) == quoteChar)) {
+                    tokenEnd = i + quoteLength;
+                    addLongToken(position, tokenEnd, LONG_STRING);
+                    return CLOSED;
+                } else {
+                    i++;
+                }
+            }
+            if (bounded) {
+                tokenEnd = length;
+                return FAILED_ON_LINE;
+            }
+            return UNTERMINATED;
+        }
+        
+        private int longToken(long position) {
+            if (index == null) {
+                return -1;
+            }
+            int found = Arrays.binarySearch(index.longTokenStarts, position);
+            return found >= 0 ? found : -1;
+        }
+        
+        private void addLongToken(long position, long end, byte kind) {
+            if (index != null || end - position < LONG_TOKEN) {
+                return;
+            }
+            int count = longTokenStarts.size();
+            if (count > 0 && longTokenStarts.get(count - 1) >= position) {
+                // Seen again after a kind was disabled further on
+                return;
+            }
+            if (count == longTokenKinds.length) {
+                longTokenKinds = Arrays.copyOf(longTokenKinds, count * 2);
+            }
+            longTokenStarts.add(position);
+            longTokenEnds.add(end);
+            longTokenKinds[count] = kind;
+        }
+        
+        private void addCheckpoint(long position) {
+            int count = checkpointBytes.size();
+            if (count > 0 && checkpointBytes.get(count - 1) >= position) {
+                // Reached again after a kind was disabled further on, the state here hasn't changed
+                return;
+            }
+            if ((count + 1) * 6 > checkpointStates.length) {
+                checkpointStates = Arrays.copyOf(checkpointStates, checkpointStates.length * 2);
+            }
+            checkpointBytes.add(position);
+            checkpointChars.add(chars);
+            for (int type = 0; type < 3; type++) {
+                checkpointStates[count * 6 + type] = depths[type];
+                checkpointStates[count * 6 + 3 + type] = stringCounts[type];
+            }
+        }
+        
+        private void emit(long charOffset, int delimiterLength, int colorIndex) {
+            if (index == null || charOffset < windowStart || charOffset >= windowEnd) {
+                return;
+            }
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, entryCount * 2);
+            }
+            entries[entryCount++] = (charOffset << 32) | (delimiterLength << 16) | colorIndex;
+        }
+        
+        private long advanceTo(long position, long end) {
+            chars += countChars(position, end);
+            return end;
+        }
+        
+        private long countChars(long from, long to) {
+            long count = 0;
+            for (long i = from; i < to; i++) {
+                count += width(i);
+            }
+            return count;
+        }
+        
+        // Whether the character ending just before the position is a letter or digit, as in the editor text
+        private boolean isLetterOrDigitBefore(long position) {
+            if (position <= start) {
+                return false;
+            }
+            byte b = text.byteAt(position - 1);
+            if (b >= 0 || !utf8) {
+                return Character.isLetterOrDigit(text.get(position - 1));
+            }
+            long lead = position - 1;
+            while (lead > start && lead > position - 4 && (text.byteAt(lead) & 0xC0) == 0x80) {
+                lead--;
+            }
+            int first = text.byteAt(lead) & 0xFF;
+            int size = (int) (position - lead);
+            if (first >= 0xF0 || size == 1) {
+                // The low half of a surrogate pair, or a stray byte, is neither
+                return false;
+            }
+            int codePoint = first & (size == 2 ? 0x1F : 0x0F);
+            for (long i = lead + 1; i < position; i++) {
+                codePoint = codePoint << 6 | text.byteAt(i) & 0x3F;
+            }
+            return Character.isLetterOrDigit(codePoint);
+        }
+        
+        // Characters the byte decodes to
+        private int width(long position) {
+            byte b = text.byteAt(position);
+            if (b == '\r') {
+                // A CRLF separator is one character
+                return position + 1 < length && text.byteAt(position + 1) == '\n' ? 0 : 1;
+            }
+            if (b >= 0 || !utf8) {
+                return 1;
+            }
+            // Continuation bytes add nothing, and four-byte sequences are surrogate pairs
+            return (b & 0xC0) == 0x80 ? 0 : (b & 0xF8) == 0xF0 ? 2 : 1;
+        }
+    }
+    
+    /**
+     * The file mapped a few megabytes at a time, as characters for the profile. A byte of a multi-byte
+     * character is never a delimiter or marker, and a lone carriage return ends a line as in the editor.
+     */
+    private static class MappedText implements CharSequence {
+        // Stands for every byte of a multi-byte character, which mostly belong to letters
+        private static final char NON_ASCII = '\u00E0';
+        
+        private final FileChannel channel;
+        private final long length;
+        private MappedByteBuffer buffer;
+        private long base = -1;
+        private int limit;
+        
+        MappedText(FileChannel channel) {
+            this.channel = channel;
+            try {
+                this.length = channel.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        byte byteAt(long position) {
+            if (position < base || position >= base + limit) {
+                map(position);
+            }
+            return buffer.get((int) (position - base));
+        }
+        
+        char get(long position) {
+            byte b = byteAt(position);
+            return b == '\r' ? '\n' : b >= 0 ? (char) b : NON_ASCII;
+        }
+        
+        // Length of the comment opener (or line comment marker) at the position, or 0
+        int match(DelimiterProfile profile, long position, boolean blockComment) {
+            ensureOverlap(position);
+            int offset = (int) (position - base);
+            return blockComment ? profile.blockCommentStartAt(this, offset) : profile.lineCommentAt(this, offset);
+        }
+        
+        int matchEnd(DelimiterProfile profile, long position) {
+            ensureOverlap(position);
+            return profile.blockCommentEndAt(this, (int) (position - base));
+        }
+        
+        private void ensureOverlap(long position) {
+            if (position < base || position + MAP_OVERLAP > base + limit && base + limit < length) {
+                map(position);
+            }
+        }
+        
+        private void map(long position) {
+            // Aligned, with the overlap so that ensureOverlap holds for every position of a map
+            base = position - position % MAP_SIZE;
+            if (position + MAP_OVERLAP > base + MAP_SIZE) {
+                base = position;
+            }
+            limit = (int) Math.min(MAP_SIZE + MAP_OVERLAP, length - base);
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, limit);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        // Relative to the current map, for the profile's marker checks
+        @Override
+        public int length() {
+            return limit;
+        }
+        
+        @Override
+        public char charAt(int index) {
+            return get(base + index);
+        }
+        
+        // A copy, since the map moves on as the scan goes
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > limit || start > end) {
+                throw new IndexOutOfBoundsException("[" + start + ", " + end + ") out of [0, " + limit + ")");
+            }
+            StringBuilder copy = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                copy.append(charAt(i));
+            }
+            return copy.toString();
+        }
+    }
+    
+    private static class LongList {
+        private long[] values = new long[16];
+        private int size;
+        
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        void removeLast() {
+            size--;
+        }
+        
+        long get(int index) {
+            return values[index];
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+    
+    // One kind per quote character and length (single or triple), after the block comment
+    private static int quoteKind(int quoteIndex, int quoteLength) {
+        return 1 + quoteIndex * 2 + (quoteLength == 3 ? 1 : 0);
+    }
+    
+    private static int quoteIndexOf(char ch) {
+        return ch == '\'' ? 0 : ch == '"' ? 1 : 2;
+    }
+}
\ No newline at end of file
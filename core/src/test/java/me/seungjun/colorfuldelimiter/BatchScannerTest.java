@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs {@link BatchScanner} on files written to a temporary directory and checks the issues it reports.
+ */
+class BatchScannerTest {
+    
+    @TempDir
+    Path directory;
+    
+    // A minified file has all its issues on one line, which counting each column from the line start made quadratic
+    @Test
+    @Timeout(30)
+    void columnsOfManyIssuesOnOneLine() throws IOException {
+        int issueCount = 200_000;
+        StringBuilder text = new StringBuilder("class A {}\n");
+        for (int i = 0; i < issueCount; i++) {
+            // Columns count characters, not bytes
+            text.append("\u00E9)");
+        }
+        Path file = directory.resolve("Long.java");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = BatchScanner.run(new String[] {"--format", "text", file.toString()},
+            new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(new ByteArrayOutputStream()));
+        
+        assertEquals(1, status);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(issueCount, lines.length);
+        for (int i = 0; i < issueCount; i++) {
+            assertEquals(file + ":2:" + (2 * i + 2) + ": unmatched closer )", lines[i]);
+        }
+    }
+    
+    @Test
+    void negativeMaxSizeIsRejected() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int status = BatchScanner.run(new String[] {"--max-size", "-1", directory.toString()},
+            new PrintStream(new ByteArrayOutputStream()), new PrintStream(err, true, StandardCharsets.UTF_8));
+        
+        assertEquals(2, status);
+        assertEquals("Maximum size must not be negative", err.toString(StandardCharsets.UTF_8).split(System.lineSeparator())[0]);
+    }
+}
\ No newline at end of file
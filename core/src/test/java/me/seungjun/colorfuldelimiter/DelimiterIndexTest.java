@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link DelimiterIndex#sameOutsideEdit} after random edits against a comparison of the
+ * delimiters outside the edit, and that the index lists the delimiters of every pair in offset order.
+ */
+class DelimiterIndexTest {
+    
+    private static final int EDITS = 20000;
+    private static final String ALPHABET = "(){}[]'\"ab \n";
+    
+    @Test
+    void sameOutsideEditMatchesComparison() {
+        Random random = new Random(11);
+        int same = 0;
+        for (int n = 0; n < EDITS; n++) {
+            String text = pick(random, ALPHABET, random.nextInt(80));
+            int start = random.nextInt(text.length() + 1);
+            int oldEnd = Math.min(text.length(), start + random.nextInt(4));
+            String inserted = pick(random, ALPHABET, random.nextInt(4));
+            String edited = text.substring(0, start) + inserted + text.substring(oldEnd);
+            int newEnd = start + inserted.length();
+            
+            DelimiterIndex previous = DelimiterMatcher.scan(text, 7).getDelimiterIndex();
+            DelimiterIndex index = DelimiterMatcher.scan(edited, 7).getDelimiterIndex();
+            boolean expected = outsideEdit(previous, start, oldEnd, 0).equals(outsideEdit(index, start, newEnd,
+                newEnd - oldEnd));
+            assertEquals(expected, index.sameOutsideEdit(previous, 0, edited.length(), start, oldEnd, newEnd),
+                () -> text.replace("\n", "\\n") + " edited to " + edited.replace("\n", "\\n"));
+            same += expected ? 1 : 0;
+        }
+        // Both answers come up often
+        int sameCount = same;
+        assertTrue(sameCount > EDITS / 10 && sameCount < EDITS * 9 / 10, () -> sameCount + " of " + EDITS + " the same");
+    }
+    
+    @Test
+    void indexListsEveryDelimiterInOrder() {
+        Random random = new Random(17);
+        for (int n = 0; n < EDITS / 10; n++) {
+            String text = pick(random, ALPHABET, random.nextInt(200));
+            DelimiterMatcher.ScanResult result = DelimiterMatcher.scan(text, 7);
+            DelimiterIndex index = result.getDelimiterIndex();
+            assertEquals(2 * result.getPairs().size(), index.size());
+            for (int i = 1; i < index.size(); i++) {
+                assertTrue(index.getOffset(i - 1) < index.getOffset(i), () -> text);
+            }
+            for (int offset = 0; offset <= text.length(); offset++) {
+                int first = index.firstAtOrAfter(offset);
+                assertTrue(first == index.size() || index.getOffset(first) >= offset);
+                assertTrue(first == 0 || index.getOffset(first - 1) < offset);
+            }
+        }
+    }
+    
+    // The delimiters not overlapping [dirtyStart, dirtyEnd), at their offsets before the edit
+    private static Set<String> outsideEdit(DelimiterIndex index, int dirtyStart, int dirtyEnd, int delta) {
+        Set<String> delimiters = new HashSet<>();
+        for (int i = 0; i < index.size(); i++) {
+            int offset = index.getOffset(i);
+            if (offset + index.getLength(i) > dirtyStart && offset < dirtyEnd) {
+                continue;
+            }
+            int unshifted = offset < dirtyStart ? offset : offset - delta;
+            delimiters.add(unshifted + " length " + index.getLength(i) + " color " + index.getColorIndex(i));
+        }
+        return delimiters;
+    }
+    
+    private static String pick(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Compares the pairs of full scans with those of {@link ReferenceMatcher}, on random texts made of the
+ * characters the profiles treat specially and on the scaling inputs.
+ */
+class DelimiterMatcherReferenceTest {
+    
+    // Few colors, so the depths and string counts wrap around
+    private static final int COLOR_COUNT = 7;
+    private static final int TEXTS_PER_PROFILE = 3000;
+    // No r or @, which could start raw and verbatim strings the reference leaves out
+    private static final String ALPHABET = "ab1 \n\n\\\\(){}[]''\"\"``/*#-%;<!>\u00E9";
+    
+    static Stream<Arguments> profiles() {
+        return Stream.of(
+            arguments("DEFAULT", DelimiterProfile.DEFAULT, ReferenceMatcher.DEFAULT),
+            arguments("C_LIKE", DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE),
+            arguments("HASH", DelimiterProfile.HASH, ReferenceMatcher.HASH),
+            arguments("SQL", DelimiterProfile.SQL, ReferenceMatcher.SQL),
+            arguments("HASKELL", DelimiterProfile.HASKELL, ReferenceMatcher.HASKELL),
+            arguments("LISP", DelimiterProfile.LISP, ReferenceMatcher.LISP),
+            arguments("ML", DelimiterProfile.ML, ReferenceMatcher.ML),
+            arguments("BASIC", DelimiterProfile.BASIC, ReferenceMatcher.BASIC),
+            arguments("PERCENT", DelimiterProfile.PERCENT, ReferenceMatcher.PERCENT),
+            arguments("TEX", DelimiterProfile.TEX, ReferenceMatcher.TEX),
+            arguments("MARKUP", DelimiterProfile.MARKUP, ReferenceMatcher.MARKUP),
+            arguments("MARKDOWN", DelimiterProfile.MARKDOWN, ReferenceMatcher.MARKDOWN),
+            arguments("PROSE", DelimiterProfile.PROSE, ReferenceMatcher.PROSE));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("profiles")
+    void randomTextsMatchReference(String name, DelimiterProfile profile, ReferenceMatcher reference) {
+        Random random = new Random(name.hashCode());
+        for (int n = 0; n < TEXTS_PER_PROFILE; n++) {
+            // Texts that are mostly one or two characters find the edge cases of runs and escapes
+            String alphabet = random.nextBoolean() ? ALPHABET : pick(random, ALPHABET, 2 + random.nextInt(4));
+            String text = pick(random, alphabet, random.nextInt(200));
+            assertEquals(reference.match(text, COLOR_COUNT), ReferenceMatcher.describe(scan(text, profile)),
+                () -> name + " text: " + escape(text));
+        }
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ScalingInput.class)
+    void scalingInputsMatchReference(ScalingInput input) {
+        String text = input.generate(64 << 10);
+        List<String> expected = input.getReference().match(text, COLOR_COUNT);
+        assertEquals(expected, ReferenceMatcher.describe(scan(text, input.getProfile())));
+    }
+    
+    private static DelimiterPairs scan(String text, DelimiterProfile profile) {
+        return DelimiterMatcher.scan(text, profile, ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE).getPairs();
+    }
+    
+    private static String pick(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return out.toString();
+    }
+    
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
\ No newline at end of file
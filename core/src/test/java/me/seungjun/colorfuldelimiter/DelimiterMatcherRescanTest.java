@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Compares scans that reuse an earlier result, {@link DelimiterMatcher#rescan} and
+ * {@link DelimiterMatcher#rescanTokens} after random edits and {@link DelimiterMatcher#finish} after
+ * {@link DelimiterMatcher#scanVisible}, with full scans of the same text. The texts span many checkpoints,
+ * so rescans resume from one before the edit and stop at the first one after it that matches.
+ */
+class DelimiterMatcherRescanTest {
+    
+    private static final int COLOR_COUNT = 7;
+    private static final int TEXT_LENGTH = 24 << 10;
+    private static final int EDITS = 300;
+    private static final int VISIBLE_RANGES = 100;
+    // Mostly code on short lines, so that scans often get back to code and take checkpoints
+    private static final String ALPHABET = "abc abc abc abc\n\n\n(){}[]''\"\"``/*#-%;<!>r@\\";
+    private static final String TOKEN_ALPHABET = "abc abc abc abc\n\n\n(){}[]''\"\"/*";
+    private static final String[] CODE_EDITS = {"", "x", "(", ")", "{", "}", "\"", "'", "/*", "*/", "//", "\n", "f(a, b);"};
+    
+    static Stream<Arguments> profiles() {
+        return Stream.of(
+            arguments("DEFAULT", DelimiterProfile.DEFAULT),
+            arguments("C_LIKE", DelimiterProfile.C_LIKE),
+            arguments("HASH", DelimiterProfile.HASH),
+            arguments("SQL", DelimiterProfile.SQL),
+            arguments("LUA", DelimiterProfile.LUA),
+            arguments("HASKELL", DelimiterProfile.HASKELL),
+            arguments("LISP", DelimiterProfile.LISP),
+            arguments("ML", DelimiterProfile.ML),
+            arguments("BASIC", DelimiterProfile.BASIC),
+            arguments("PERCENT", DelimiterProfile.PERCENT),
+            arguments("TEX", DelimiterProfile.TEX),
+            arguments("MARKUP", DelimiterProfile.MARKUP),
+            arguments("MARKDOWN", DelimiterProfile.MARKDOWN),
+            arguments("PROSE", DelimiterProfile.PROSE));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("profiles")
+    void rescanMatchesFullScan(String name, DelimiterProfile profile) {
+        Random random = new Random(name.hashCode());
+        String text = pick(random, ALPHABET, TEXT_LENGTH);
+        DelimiterMatcher.ScanResult result = scan(text, profile);
+        for (int n = 0; n < EDITS; n++) {
+            int start = random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(8));
+            String inserted = pick(random, ALPHABET, random.nextInt(8));
+            String edited = text.substring(0, start) + inserted + text.substring(end);
+            
+            result = DelimiterMatcher.rescan(result, edited, start, end, start + inserted.length());
+            String edit = name + " edit [" + start + ", " + end + ") to " + escape(inserted);
+            assertEquals(describe(scan(edited, profile)), describe(result), () -> edit);
+            text = edited;
+        }
+    }
+    
+    // Random texts mostly end in a comment or string that never closes, after which rescans start over
+    @Test
+    void rescanOfCodeResumesAndConverges() {
+        Random random = new Random(3);
+        String text = ScalingInput.COMMENT_HEAVY.generate(TEXT_LENGTH);
+        DelimiterProfile profile = ScalingInput.COMMENT_HEAVY.getProfile();
+        DelimiterMatcher.ScanResult result = scan(text, profile);
+        int resumed = 0;
+        int converged = 0;
+        for (int n = 0; n < EDITS; n++) {
+            int start = random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(8));
+            String inserted = CODE_EDITS[random.nextInt(CODE_EDITS.length)];
+            String edited = text.substring(0, start) + inserted + text.substring(end);
+            
+            result = DelimiterMatcher.rescan(result, edited, start, end, start + inserted.length());
+            String edit = "edit [" + start + ", " + end + ") to " + escape(inserted);
+            assertEquals(describe(scan(edited, profile)), describe(result), () -> edit);
+            resumed += result.getChangedStart() > 0 ? 1 : 0;
+            converged += result.getChangedEnd() < edited.length() ? 1 : 0;
+            text = edited;
+        }
+        int resumedCount = resumed;
+        int convergedCount = converged;
+        assertTrue(resumedCount > EDITS / 2 && convergedCount > EDITS / 4, () -> "of " + EDITS + " rescans, "
+            + resumedCount + " resumed from a checkpoint and " + convergedCount + " converged");
+    }
+    
+    @Test
+    void rescanTokensMatchesFullScan() {
+        Random random = new Random(7);
+        String text = pick(random, TOKEN_ALPHABET, TEXT_LENGTH);
+        DelimiterMatcher.ScanResult result = scanTokens(text);
+        int resumed = 0;
+        for (int n = 0; n < EDITS; n++) {
+            int start = random.nextInt(text.length() + 1);
+            int end = Math.min(text.length(), start + random.nextInt(8));
+            String inserted = pick(random, TOKEN_ALPHABET, random.nextInt(8));
+            String edited = text.substring(0, start) + inserted + text.substring(end);
+            
+            result = DelimiterMatcher.rescanTokens(result, edited, offset -> new LineLexer(edited, offset), start, end,
+                start + inserted.length());
+            String edit = "edit [" + start + ", " + end + ") to " + escape(inserted);
+            assertEquals(describe(scanTokens(edited)), describe(result), () -> edit);
+            resumed += result.getChangedStart() > 0 ? 1 : 0;
+            text = edited;
+        }
+        int resumedCount = resumed;
+        assertTrue(resumedCount > EDITS / 2, () -> "token rescans resumed from a checkpoint " + resumedCount + " times");
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("profiles")
+    void visibleScanMatchesFullScan(String name, DelimiterProfile profile) {
+        Random random = new Random(name.hashCode());
+        for (int n = 0; n < VISIBLE_RANGES; n++) {
+            boolean tokens = n % 4 == 0;
+            String text = pick(random, tokens ? TOKEN_ALPHABET : ALPHABET, TEXT_LENGTH);
+            int visibleStart = random.nextInt(text.length());
+            int visibleEnd = Math.min(text.length(), visibleStart + random.nextInt(4096));
+            String range = name + (tokens ? " tokens" : "") + " visible [" + visibleStart + ", " + visibleEnd + ")";
+            
+            DelimiterMatcher.ScanResult full = tokens ? scanTokens(text) : scan(text, profile);
+            DelimiterMatcher.ScanResult stopped = DelimiterMatcher.scanVisible(text, profile,
+                tokens ? new LineLexer(text, 0) : null, ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+                DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE, visibleStart, visibleEnd);
+            assertTrue(stopped.isFinalIn(visibleStart, visibleEnd), () -> range);
+            assertEquals(delimitersIn(full, visibleStart, visibleEnd), delimitersIn(stopped, visibleStart, visibleEnd),
+                () -> range);
+            
+            DelimiterMatcher.ScanResult finished = DelimiterMatcher.finish(stopped, text,
+                offset -> new LineLexer(text, offset), DelimiterMatcher.NO_DEPTH_CAP, DelimiterMatcher.NO_DEADLINE);
+            assertTrue(finished.isComplete(), () -> range);
+            assertEquals(describe(full), describe(finished), () -> range);
+        }
+    }
+    
+    private static DelimiterMatcher.ScanResult scan(String text, DelimiterProfile profile) {
+        return DelimiterMatcher.scan(text, profile, ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE);
+    }
+    
+    private static DelimiterMatcher.ScanResult scanTokens(String text) {
+        return DelimiterMatcher.scanTokens(text, new LineLexer(text, 0), COLOR_COUNT);
+    }
+    
+    // Pairs and skipped ranges, which later rescans start from
+    private static String describe(DelimiterMatcher.ScanResult result) {
+        StringBuilder out = new StringBuilder();
+        for (String pair : ReferenceMatcher.describe(result.getPairs())) {
+            out.append(pair).append('\n');
+        }
+        describe(out.append("comments"), result.getCommentRanges());
+        describe(out.append("\nstrings"), result.getStringRanges());
+        return out.toString();
+    }
+    
+    private static void describe(StringBuilder out, SkipRangeIndex ranges) {
+        for (int i = 0; i < ranges.size(); i++) {
+            out.append(' ').append(ranges.getStart(i)).append('-').append(ranges.getEnd(i));
+        }
+    }
+    
+    private static List<String> delimitersIn(DelimiterMatcher.ScanResult result, int start, int end) {
+        DelimiterIndex index = result.getDelimiterIndex();
+        List<String> delimiters = new ArrayList<>();
+        for (int i = index.firstAtOrAfter(start); i < index.size() && index.getOffset(i) < end; i++) {
+            delimiters.add(index.getOffset(i) + " length " + index.getLength(i) + " color " + index.getColorIndex(i));
+        }
+        return delimiters;
+    }
+    
+    private static String pick(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return out.toString();
+    }
+    
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+    
+    /**
+     * Lexes block comments a line at a time, as many editor lexers do, so that the tokens of a comment's
+     * later lines start in a state of their own and are no restart points.
+     */
+    private static class LineLexer implements DelimiterTokenStream {
+        private static final int INITIAL = 0;
+        private static final int IN_COMMENT = 1;
+        
+        private final String text;
+        private int start;
+        private int end;
+        private int kind;
+        private int state;
+        private int nextState = INITIAL;
+        
+        LineLexer(String text, int offset) {
+            this.text = text;
+            this.end = offset;
+            advance();
+        }
+        
+        @Override
+        public boolean atEnd() {
+            return start >= text.length();
+        }
+        
+        @Override
+        public int getStart() {
+            return start;
+        }
+        
+        @Override
+        public int getEnd() {
+            return end;
+        }
+        
+        @Override
+        public int getKind() {
+            return kind;
+        }
+        
+        @Override
+        public boolean isRestartPoint() {
+            return state == INITIAL;
+        }
+        
+        @Override
+        public void advance() {
+            start = end;
+            state = nextState;
+            if (start >= text.length()) {
+                return;
+            }
+            char ch = text.charAt(start);
+            if (state == IN_COMMENT) {
+                commentLine(start);
+            } else if (text.startsWith("//", start)) {
+                end = lineEnd(start);
+                kind = COMMENT;
+            } else if (text.startsWith("/*", start)) {
+                commentLine(start + 2);
+            } else if (ch == '"' || ch == '\'') {
+                int close = start + 1;
+                while (close < text.length() && text.charAt(close) != ch && text.charAt(close) != '\n') {
+                    close++;
+                }
+                end = close < text.length() && text.charAt(close) == ch ? close + 1 : close;
+                kind = STRING;
+            } else if (Character.isLetter(ch)) {
+                end = start;
+                while (end < text.length() && Character.isLetter(text.charAt(end))) {
+                    end++;
+                }
+                kind = CODE;
+            } else {
+                end = start + 1;
+                kind = CODE;
+            }
+        }
+        
+        // One line of a block comment, from where its closer may start
+        private void commentLine(int from) {
+            kind = COMMENT;
+            int close = text.indexOf("*/", from);
+            int lineEnd = lineEnd(from);
+            if (close >= 0 && close < lineEnd) {
+                end = close + 2;
+                nextState = INITIAL;
+            } else {
+                end = Math.min(text.length(), lineEnd + 1);
+                nextState = IN_COMMENT;
+            }
+        }
+        
+        private int lineEnd(int from) {
+            int lineEnd = text.indexOf('\n', from);
+            return lineEnd >= 0 ? lineEnd : text.length();
+        }
+    }
+}
\ No newline at end of file
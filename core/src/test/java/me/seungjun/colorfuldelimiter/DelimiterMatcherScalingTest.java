@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Scans each {@link ScalingInput} at doubling sizes, and fails when the characters a scan reads grow
+ * faster than linearly with the size or a scan allocates more per KB than the input's budget. Reads are
+ * counted rather than timed, so the bound holds on a busy machine as well: a search that goes back over
+ * the text reads more per character at every size, and one bad enough to take minutes times out.
+ */
+@Timeout(120)
+class DelimiterMatcherScalingTest {
+    
+    private static final int[] SIZES = {128 << 10, 256 << 10, 512 << 10, 1 << 20, 2 << 20};
+    // How much more per character the largest scan may read than the smallest, sixteen times shorter one
+    private static final double MAX_READ_GROWTH = 1.1;
+    private static final int COLOR_COUNT = 20;
+    
+    @ParameterizedTest
+    @EnumSource(ScalingInput.class)
+    void readsGrowLinearly(ScalingInput input) {
+        double[] readsPerChar = new double[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            CountingText text = new CountingText(input.generate(SIZES[i]));
+            scan(input, text);
+            readsPerChar[i] = text.reads / (double) SIZES[i];
+        }
+        double growth = readsPerChar[SIZES.length - 1] / readsPerChar[0];
+        assertTrue(growth <= MAX_READ_GROWTH, () -> String.format("%s scan reads %.2f times as much per character "
+            + "at %d KB as at %d KB, reads per character: %s", input, growth, SIZES[SIZES.length - 1] >> 10,
+            SIZES[0] >> 10, Arrays.toString(readsPerChar)));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ScalingInput.class)
+    void allocationStaysWithinBudget(ScalingInput input) {
+        com.sun.management.ThreadMXBean allocations = allocationBean();
+        assumeTrue(allocations != null, "Thread allocation counters are not supported");
+        long thread = Thread.currentThread().getId();
+        for (int size : new int[] {SIZES[0], SIZES[SIZES.length - 1]}) {
+            String text = input.generate(size);
+            scan(input, text);
+            long before = allocations.getThreadAllocatedBytes(thread);
+            scan(input, text);
+            long perKb = (allocations.getThreadAllocatedBytes(thread) - before) / (size >> 10);
+            assertTrue(perKb <= input.getAllocationBudget(), () -> String.format(
+                "%s scan of %d KB allocates %d bytes per KB, over the budget of %d", input, size >> 10, perKb,
+                input.getAllocationBudget()));
+        }
+    }
+    
+    private static void scan(ScalingInput input, CharSequence text) {
+        DelimiterMatcher.scan(text, input.getProfile(), ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE);
+    }
+    
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) bean;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations;
+            }
+        }
+        return null;
+    }
+    
+    // Counts the characters a scan reads
+    private static class CountingText implements CharSequence {
+        private final String text;
+        private long reads;
+        
+        CountingText(String text) {
+            this.text = text;
+        }
+        
+        @Override
+        public int length() {
+            return text.length();
+        }
+        
+        @Override
+        public char charAt(int index) {
+            reads++;
+            return text.charAt(index);
+        }
+        
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            reads += end - start;
+            return text.subSequence(start, end);
+        }
+        
+        @Override
+        public String toString() {
+            reads += text.length();
+            return text;
+        }
+    }
+}
\ No newline at end of file
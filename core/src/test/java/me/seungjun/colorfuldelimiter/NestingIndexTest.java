@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link NestingIndex#enclosing} at every offset of random texts against a search through all
+ * pairs, and the parents and siblings against the pair offsets.
+ */
+class NestingIndexTest {
+    
+    private static final int TEXTS = 5000;
+    // Brackets of different types cross, and triple quotes are longer than one character
+    private static final String ALPHABET = "(){}[]'\"`ab \n";
+    
+    @Test
+    void enclosingMatchesSearch() {
+        Random random = new Random(3);
+        for (int n = 0; n < TEXTS; n++) {
+            String text = pick(random, ALPHABET, random.nextInt(120));
+            DelimiterMatcher.ScanResult result = DelimiterMatcher.scan(text, 20);
+            DelimiterPairs pairs = result.getPairs();
+            NestingIndex index = result.getNestingIndex();
+            for (int offset = 0; offset <= text.length(); offset++) {
+                int found = index.enclosing(offset);
+                int caret = offset;
+                assertEquals(innermost(pairs, offset), found == NestingIndex.NONE ? -1 : index.getPairIndex(found),
+                    () -> "offset " + caret + " of " + text.replace("\n", "\\n"));
+            }
+        }
+    }
+    
+    @Test
+    void parentsContainTheirChildren() {
+        Random random = new Random(5);
+        for (int n = 0; n < TEXTS; n++) {
+            String text = pick(random, ALPHABET, random.nextInt(120));
+            NestingIndex index = DelimiterMatcher.scan(text, 20).getNestingIndex();
+            for (int pair = 0; pair < index.size(); pair++) {
+                int child = pair;
+                int parent = index.getParent(pair);
+                assertTrue(parent == NestingIndex.NONE || index.getOpenOffset(parent) < index.getOpenOffset(pair)
+                    && index.getCloseOffset(pair) < index.getCloseOffset(parent), () -> "parent of " + child + " in " + text);
+                int next = index.getNextSibling(pair);
+                assertTrue(next == NestingIndex.NONE || index.getParent(next) == parent
+                    && index.getPreviousSibling(next) == pair, () -> "next sibling of " + child + " in " + text);
+            }
+        }
+    }
+    
+    // The pair opened last whose delimiters are on either side of the offset, or -1
+    private static int innermost(DelimiterPairs pairs, int offset) {
+        int best = -1;
+        for (int i = 0; i < pairs.size(); i++) {
+            int length = pairs.getQuoteLength(i);
+            boolean around = pairs.getOpenOffset(i) + length <= offset && offset <= pairs.getCloseOffset(i) - length + 1;
+            if (around && (best == -1 || pairs.getOpenOffset(i) > pairs.getOpenOffset(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+    
+    private static String pick(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares {@link ParallelBracketMatcher} with the serial bracket-only scan, for chunk counts from one
+ * up to more chunks than brackets, so that pairs and depths are carried across many chunk borders.
+ */
+class ParallelBracketMatcherTest {
+    
+    private static final int COLOR_COUNT = 7;
+    private static final int TEXTS = 200;
+    private static final int MAX_CHUNKS = 64;
+    // Unbalanced on purpose, so that chunks end with openers and start with closers of other types
+    private static final String ALPHABET = "ab \n(((())){{{}}[[]]]";
+    
+    @Test
+    void randomTextsMatchSerialScan() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(13);
+            for (int n = 0; n < TEXTS; n++) {
+                String text = pick(random, ALPHABET, random.nextInt(2000));
+                int chunkCount = 1 + random.nextInt(MAX_CHUNKS);
+                assertEquals(ReferenceMatcher.describe(serialScan(text)),
+                    ReferenceMatcher.describe(parallelScan(text, pool, chunkCount)),
+                    () -> chunkCount + " chunks of " + text.replace("\n", "\\n"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ScalingInput.class)
+    void scalingInputsMatchSerialScan(ScalingInput input) {
+        String text = input.generate(256 << 10);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(ReferenceMatcher.describe(serialScan(text)),
+                ReferenceMatcher.describe(parallelScan(text, pool, 16)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    // Below ParallelBracketMatcher.MIN_LENGTH, so the serial scan is used
+    private static DelimiterPairs serialScan(String text) {
+        return DelimiterMatcher.scan(text, DelimiterProfile.DEFAULT, ScanMode.BRACKETS_ONLY, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE).getPairs();
+    }
+    
+    private static DelimiterPairs parallelScan(String text, ForkJoinPool pool, int chunkCount) {
+        return ParallelBracketMatcher.match(text, DelimiterMatcher.NO_DEPTH_CAP, COLOR_COUNT, CancellationCheck.NONE,
+            pool, chunkCount);
+    }
+    
+    private static String pick(Random random, String alphabet, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return out.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The matching rules of {@link DelimiterMatcher} written the obvious way: one position at a time, with a
+ * fresh search for the end of every comment and string, and no character tables, checkpoints or skipping.
+ * Too slow for an editor, but short enough to check by reading. Raw, verbatim and long strings are left
+ * out, so texts given to both must not contain them.
+ */
+class ReferenceMatcher {
+    
+    // The profiles of the same names, see DelimiterProfile
+    static final ReferenceMatcher DEFAULT = new ReferenceMatcher("'\"`", false, "/*", "*/", "//", "#");
+    static final ReferenceMatcher C_LIKE = new ReferenceMatcher("'\"`", false, "/*", "*/", "//");
+    static final ReferenceMatcher HASH = new ReferenceMatcher("'\"`", false, null, null, "#");
+    static final ReferenceMatcher SQL = new ReferenceMatcher("'\"`", false, "/*", "*/", "--");
+    static final ReferenceMatcher HASKELL = new ReferenceMatcher("\"'", true, "{-", "-}", "--");
+    static final ReferenceMatcher LISP = new ReferenceMatcher("\"", false, null, null, ";");
+    static final ReferenceMatcher ML = new ReferenceMatcher("\"", false, "(*", "*)", "//");
+    static final ReferenceMatcher BASIC = new ReferenceMatcher("\"", false, null, null, "'");
+    static final ReferenceMatcher PERCENT = new ReferenceMatcher("'\"", false, null, null, "%");
+    static final ReferenceMatcher TEX = new ReferenceMatcher("", false, null, null, "%");
+    static final ReferenceMatcher MARKUP = new ReferenceMatcher("'\"", true, "<!--", "-->");
+    static final ReferenceMatcher MARKDOWN = new ReferenceMatcher("'\"`", true, "<!--", "-->");
+    static final ReferenceMatcher PROSE = new ReferenceMatcher("'\"`", true, null, null);
+    
+    private final String quotes;
+    private final boolean wordApostrophes;
+    private final String blockCommentStart;
+    private final String blockCommentEnd;
+    private final String[] lineComments;
+    
+    ReferenceMatcher(String quotes, boolean wordApostrophes, String blockCommentStart, String blockCommentEnd,
+                     String... lineComments) {
+        this.quotes = quotes;
+        this.wordApostrophes = wordApostrophes;
+        this.blockCommentStart = blockCommentStart;
+        this.blockCommentEnd = blockCommentEnd;
+        this.lineComments = lineComments;
+    }
+    
+    /**
+     * Returns the pairs of the text, formatted by {@link #describe}, sorted.
+     */
+    List<String> match(String text, int colorCount) {
+        List<String> pairs = new ArrayList<>();
+        Map<Character, Deque<Integer>> openers = new HashMap<>();
+        for (char opener : "({[".toCharArray()) {
+            openers.put(opener, new ArrayDeque<>());
+        }
+        Map<Character, Integer> stringCounts = new HashMap<>();
+        Map<Character, Integer> failedLineEnds = new HashMap<>();
+        // "comment", or a quote character and length, once one of them was found not to close
+        Set<String> disabled = new HashSet<>();
+        
+        int i = 0;
+        while (i < text.length()) {
+            char ch = text.charAt(i);
+            if (blockCommentStart != null && !disabled.contains("comment") && text.startsWith(blockCommentStart, i)) {
+                int end = text.indexOf(blockCommentEnd, i + blockCommentStart.length());
+                if (end < 0) {
+                    // Read the opener again as code
+                    disabled.add("comment");
+                } else {
+                    i = end + blockCommentEnd.length();
+                }
+                continue;
+            }
+            if (startsLineComment(text, i)) {
+                int end = text.indexOf('\n', i);
+                i = end < 0 ? text.length() : end + 1;
+                continue;
+            }
+            
+            if (quotes.indexOf(ch) >= 0) {
+                String quote = i + 2 < text.length() && text.charAt(i + 1) == ch && text.charAt(i + 2) == ch
+                    ? "" + ch + ch + ch : "" + ch;
+                int length = quote.length();
+                boolean bounded = length == 1 && ch != '`';
+                boolean wordApostrophe = wordApostrophes && ch == '\'' && i > 0
+                    && Character.isLetterOrDigit(text.charAt(i - 1));
+                if (disabled.contains(quote) || bounded && i < failedLineEnds.getOrDefault(ch, -1) || wordApostrophe) {
+                    i++;
+                    continue;
+                }
+                int end = i + length;
+                while (end < text.length() && !(bounded && text.charAt(end) == '\n') && !text.startsWith(quote, end)) {
+                    end += text.charAt(end) == '\\' ? 2 : 1;
+                }
+                if (end < text.length() && text.startsWith(quote, end)) {
+                    int count = stringCounts.getOrDefault(ch, 0);
+                    pairs.add(describe(i, end + length - 1, ch, (count + 10) % colorCount, length));
+                    if (end > i + length) {
+                        stringCounts.put(ch, count + 1);
+                    }
+                    i = end + length;
+                } else {
+                    if (bounded) {
+                        failedLineEnds.put(ch, Math.min(end, text.length()));
+                    } else {
+                        disabled.add(quote);
+                    }
+                    i++;
+                }
+                continue;
+            }
+            
+            int closer = ")}]".indexOf(ch);
+            if (openers.containsKey(ch)) {
+                openers.get(ch).push(i);
+            } else if (closer >= 0 && !openers.get("({[".charAt(closer)).isEmpty()) {
+                Deque<Integer> stack = openers.get("({[".charAt(closer));
+                int open = stack.pop();
+                pairs.add(describe(open, i, "({[".charAt(closer), stack.size() % colorCount, 1));
+            }
+            i++;
+        }
+        Collections.sort(pairs);
+        return pairs;
+    }
+    
+    private boolean startsLineComment(String text, int offset) {
+        for (String marker : lineComments) {
+            if (text.startsWith(marker, offset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Returns the pairs of a scan in the format of {@link #match}.
+     */
+    static List<String> describe(DelimiterPairs pairs) {
+        List<String> described = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            described.add(describe(pairs.getOpenOffset(i), pairs.getCloseOffset(i), pairs.getDelimiterType(i),
+                pairs.getColorIndex(i), pairs.getQuoteLength(i)));
+        }
+        Collections.sort(described);
+        return described;
+    }
+    
+    private static String describe(int open, int close, char type, int colorIndex, int length) {
+        return String.format(Locale.ROOT, "%08d-%08d %s color %d length %d", open, close, type, colorIndex, length);
+    }
+}
\ No newline at end of file
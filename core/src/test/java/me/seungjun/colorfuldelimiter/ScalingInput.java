@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import java.util.Random;
+
+/**
+ * Generated inputs for the regression tests, each aimed at a search that becomes quadratic when written
+ * carelessly. None has raw or verbatim strings, so the {@link ReferenceMatcher} applies to all of them.
+ * Allocation budgets are about one and a half times what a scan allocates now.
+ */
+enum ScalingInput {
+    
+    /** Short comments between every few tokens, for lookups of whether an offset is in one. */
+    COMMENT_HEAVY(DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE, 7000) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("a[").append(n).append("] = /* f(x) ").append(n).append(" */ g(b, \"(\"); // see {")
+                .append(n).append("}\n/* [ */ if (c) { d(); } /* ) */\n");
+        }
+    },
+    
+    /** A quote on every line that never closes, for searches of the closing quote past the line end. */
+    UNCLOSED_QUOTES(DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE, 5500) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("x = \"unclosed (").append(n).append(" [y];\n")
+                .append(random.nextBoolean() ? "it's {" : "f('a', ").append(n).append(")\n");
+        }
+    },
+    
+    /** A backtick, triple quote and block comment at the start that never close, then ordinary code. */
+    UNTERMINATED_AT_START(DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE, 4000) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            if (out.length() == 0) {
+                out.append("` \"\"\" /* (\n");
+            }
+            int n = random.nextInt(1000);
+            out.append("f(a[").append(n).append("], {k: 'v'}, \"s\"); ` \"\"\" /* ").append(n).append('\n');
+        }
+    },
+    
+    /** Brackets nested thousands deep, with openers that never close piling up on the stacks. */
+    DEEP_NESTING(DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE, 20000) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int depth = 1 + random.nextInt(2000);
+            for (int i = 0; i < depth; i++) {
+                out.append("([{".charAt(i % 3));
+            }
+            out.append("\"v\"").append(random.nextBoolean() ? "(" : "");
+            for (int i = depth - 1; i >= 0; i--) {
+                out.append(")]}".charAt(i % 3));
+            }
+            out.append(",\n");
+        }
+    },
+    
+    /** Bundled code on one line, with escaped quotes and backslash runs in its strings. */
+    MINIFIED(DelimiterProfile.C_LIKE, ReferenceMatcher.C_LIKE, 11000) {
+        @Override
+        void append(StringBuilder out, Random random) {
+            int n = random.nextInt(1000);
+            out.append("function f").append(n).append("(a,b){let s=\"x(\\\"\"+a[").append(n % 7)
+                .append("]+'\\\\';if(b){s=[s,{k:'v'},`t${a}`].map(x=>x/2)}return s};");
+        }
+    },
+    
+    /** English text whose apostrophes would otherwise each start a string. */
+    PROSE_APOSTROPHES(DelimiterProfile.PROSE, ReferenceMatcher.PROSE, 2500) {
+        private final String[] words = {
+            "don't", "it's", "the", "students'", "can't", "(really)", "we'll", "a", "rock 'n' roll", "O'Brien's",
+            "[sic]"
+        };
+        
+        @Override
+        void append(StringBuilder out, Random random) {
+            int count = 8 + random.nextInt(12);
+            for (int i = 0; i < count; i++) {
+                out.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            out.append(random.nextInt(4) == 0 ? "'quoted'.\n" : ".\n");
+        }
+    };
+    
+    private final DelimiterProfile profile;
+    private final ReferenceMatcher reference;
+    // Most bytes a scan may allocate per KB of input
+    private final int allocationBudget;
+    
+    ScalingInput(DelimiterProfile profile, ReferenceMatcher reference, int allocationBudget) {
+        this.profile = profile;
+        this.reference = reference;
+        this.allocationBudget = allocationBudget;
+    }
+    
+    DelimiterProfile getProfile() {
+        return profile;
+    }
+    
+    ReferenceMatcher getReference() {
+        return reference;
+    }
+    
+    int getAllocationBudget() {
+        return allocationBudget;
+    }
+    
+    /**
+     * Returns text of exactly the given length, the same for every call.
+     */
+    String generate(int length) {
+        Random random = new Random(ordinal() * 31L + 1);
+        StringBuilder out = new StringBuilder(length + 8192);
+        while (out.length() < length) {
+            append(out, random);
+        }
+        out.setLength(length);
+        return out.toString();
+    }
+    
+    abstract void append(StringBuilder out, Random random);
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saves scan results to a temporary directory and loads them back, also after damaging the files.
+ */
+class ScanResultStoreTest {
+    
+    private static final long MAX_BYTES = 1 << 20;
+    private static final String VARIANT = "test";
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void loadsWhatWasSaved() {
+        String text = ScalingInput.COMMENT_HEAVY.generate(16 << 10);
+        DelimiterMatcher.ScanResult result = scan(text);
+        long key = ScanResultStore.key(text, VARIANT);
+        new ScanResultStore(directory, MAX_BYTES).save(key, text.length(), result);
+        
+        // As in a later session
+        DelimiterMatcher.ScanResult loaded = new ScanResultStore(directory, MAX_BYTES).load(key, text.length(),
+            DelimiterProfile.C_LIKE, CancellationCheck.NONE);
+        assertNotNull(loaded);
+        assertEquals(result.getMode(), loaded.getMode());
+        assertEquals(result.getColorCount(), loaded.getColorCount());
+        assertEquals(ReferenceMatcher.describe(result.getPairs()), ReferenceMatcher.describe(loaded.getPairs()));
+        assertEquals(ranges(result.getCommentRanges()), ranges(loaded.getCommentRanges()));
+        assertEquals(ranges(result.getStringRanges()), ranges(loaded.getStringRanges()));
+    }
+    
+    @Test
+    void keysDependOnTextAndVariant() {
+        assertEquals(ScanResultStore.key("f(a)", VARIANT), ScanResultStore.key(new StringBuilder("f(a)"), VARIANT));
+        assertNotEquals(ScanResultStore.key("f(a)", VARIANT), ScanResultStore.key("f(b)", VARIANT));
+        assertNotEquals(ScanResultStore.key("f(a)", VARIANT), ScanResultStore.key("f(a)", VARIANT + "2"));
+    }
+    
+    @Test
+    void otherTextLengthIsNotLoaded() {
+        String text = "f(a, [b]) { c }";
+        long key = ScanResultStore.key(text, VARIANT);
+        ScanResultStore store = new ScanResultStore(directory, MAX_BYTES);
+        store.save(key, text.length(), scan(text));
+        
+        assertNull(store.load(key, text.length() + 1, DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+        assertNull(store.load(key + 1, text.length(), DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+    }
+    
+    @Test
+    void damagedFilesAreIgnoredAndDeleted() throws IOException {
+        String text = ScalingInput.COMMENT_HEAVY.generate(4 << 10);
+        DelimiterMatcher.ScanResult result = scan(text);
+        long key = ScanResultStore.key(text, VARIANT);
+        Path file = directory.resolve(Long.toHexString(key) + ".scan");
+        
+        new ScanResultStore(directory, MAX_BYTES).save(key, text.length(), result);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertNull(new ScanResultStore(directory, MAX_BYTES).load(key, text.length(), DelimiterProfile.C_LIKE,
+            CancellationCheck.NONE));
+        assertFalse(Files.exists(file));
+        
+        new ScanResultStore(directory, MAX_BYTES).save(key, text.length(), result);
+        bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertNull(new ScanResultStore(directory, MAX_BYTES).load(key, text.length(), DelimiterProfile.C_LIKE,
+            CancellationCheck.NONE));
+        assertFalse(Files.exists(file));
+    }
+    
+    @Test
+    void leastRecentlyUsedAreEvicted() {
+        String[] texts = new String[4];
+        long[] keys = new long[texts.length];
+        long size = 0;
+        ScanResultStore store = new ScanResultStore(directory, MAX_BYTES);
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = ScalingInput.COMMENT_HEAVY.generate((4 << 10) + i);
+            keys[i] = ScanResultStore.key(texts[i], VARIANT);
+        }
+        
+        // Room for three results
+        store.save(keys[0], texts[0].length(), scan(texts[0]));
+        long resultBytes = directorySize();
+        store = new ScanResultStore(directory, resultBytes * 3 + resultBytes / 2);
+        store.save(keys[1], texts[1].length(), scan(texts[1]));
+        store.save(keys[2], texts[2].length(), scan(texts[2]));
+        assertNotNull(store.load(keys[0], texts[0].length(), DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+        store.save(keys[3], texts[3].length(), scan(texts[3]));
+        
+        assertNotNull(store.load(keys[0], texts[0].length(), DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+        assertNull(store.load(keys[1], texts[1].length(), DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+        assertNotNull(store.load(keys[3], texts[3].length(), DelimiterProfile.C_LIKE, CancellationCheck.NONE));
+        assertTrue(directorySize() <= resultBytes * 3 + resultBytes / 2);
+    }
+    
+    private static DelimiterMatcher.ScanResult scan(String text) {
+        return DelimiterMatcher.scan(text, DelimiterProfile.C_LIKE, ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, 7, CancellationCheck.NONE);
+    }
+    
+    private static String ranges(SkipRangeIndex ranges) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < ranges.size(); i++) {
+            out.append(ranges.getStart(i)).append('-').append(ranges.getEnd(i)).append(' ');
+        }
+        return out.toString();
+    }
+    
+    private long directorySize() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(file -> file.toFile().length()).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
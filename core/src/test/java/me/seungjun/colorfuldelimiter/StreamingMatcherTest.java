@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.params.provider.Arguments.arguments;
+
+/**
+ * Writes texts to a file and compares the delimiters of {@link StreamingMatcher} windows with those of a
+ * full scan of the text, with CRLF line separators, byte order marks and multi-byte characters, and on
+ * inputs long enough for windows to start from checkpoints.
+ */
+class StreamingMatcherTest {
+    
+    private static final int COLOR_COUNT = 20;
+    private static final int TEXTS_PER_PROFILE = 500;
+    private static final int WINDOWS_PER_TEXT = 4;
+    // No r, @ or long brackets, which windows read as ordinary quotes and brackets
+    private static final String ALPHABET = "ab(){}'\"`/*#-;%<!>\\\n \u00E9\uD83D\uDE00 ";
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    
+    @TempDir
+    Path directory;
+    
+    static Stream<Arguments> profiles() {
+        return Stream.of(
+            arguments("C_LIKE", DelimiterProfile.C_LIKE),
+            arguments("HASH", DelimiterProfile.HASH),
+            arguments("SQL", DelimiterProfile.SQL),
+            arguments("HASKELL", DelimiterProfile.HASKELL),
+            arguments("LISP", DelimiterProfile.LISP),
+            arguments("ML", DelimiterProfile.ML),
+            arguments("BASIC", DelimiterProfile.BASIC),
+            arguments("PERCENT", DelimiterProfile.PERCENT),
+            arguments("TEX", DelimiterProfile.TEX),
+            arguments("MARKUP", DelimiterProfile.MARKUP),
+            arguments("MARKDOWN", DelimiterProfile.MARKDOWN),
+            arguments("PROSE", DelimiterProfile.PROSE));
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("profiles")
+    void randomTextWindowsMatchFullScan(String name, DelimiterProfile profile) throws IOException {
+        Random random = new Random(name.hashCode());
+        Path file = directory.resolve("random.txt");
+        for (int n = 0; n < TEXTS_PER_PROFILE; n++) {
+            String text = pick(random, random.nextInt(160));
+            boolean crlf = random.nextBoolean();
+            boolean bom = random.nextInt(4) == 0;
+            write(file, text, crlf, bom);
+            String description = name + (crlf ? " CRLF" : "") + (bom ? " BOM" : "") + " " + escape(text);
+            compareWindows(file, text, profile, bom, random, description);
+        }
+    }
+    
+    @ParameterizedTest
+    @EnumSource(ScalingInput.class)
+    void longInputWindowsMatchFullScan(ScalingInput input) throws IOException {
+        // Several checkpoint intervals, and longer than one map
+        String text = input.generate(StreamingMatcher.CHECKPOINT_INTERVAL * 6);
+        Path file = directory.resolve("long.txt");
+        write(file, text, false, false);
+        compareWindows(file, text, input.getProfile(), false, new Random(input.ordinal()), input.name());
+    }
+    
+    private void compareWindows(Path file, String text, DelimiterProfile profile, boolean bom, Random random,
+                                String description) throws IOException {
+        DelimiterIndex expected = DelimiterMatcher.scan(text, profile, ScanMode.FULL, DelimiterMatcher.NO_DEPTH_CAP,
+            DelimiterMatcher.NO_DEADLINE, COLOR_COUNT, CancellationCheck.NONE).getDelimiterIndex();
+        try (FileChannel channel = FileChannel.open(file)) {
+            StreamingMatcher.Index index = StreamingMatcher.index(channel, profile, true, bom ? BOM.length : 0,
+                CancellationCheck.NONE);
+            assertEquals(text.length(), index.getCharLength(), description);
+            for (int w = 0; w < WINDOWS_PER_TEXT; w++) {
+                int start = w == 0 ? 0 : random.nextInt(text.length() + 1);
+                int end = w == 0 ? text.length() : Math.min(text.length(), start + random.nextInt(text.length() / 4 + 1));
+                DelimiterIndex window = StreamingMatcher.window(channel, index, start, end, COLOR_COUNT,
+                    CancellationCheck.NONE);
+                assertEquals(delimitersIn(expected, start, end), delimitersIn(window, start, end),
+                    description + " window [" + start + ", " + end + ")");
+            }
+        }
+    }
+    
+    private static void write(Path file, String text, boolean crlf, boolean bom) throws IOException {
+        byte[] body = (crlf ? text.replace("\n", "\r\n") : text).getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = body;
+        if (bom) {
+            bytes = new byte[BOM.length + body.length];
+            System.arraycopy(BOM, 0, bytes, 0, BOM.length);
+            System.arraycopy(body, 0, bytes, BOM.length, body.length);
+        }
+        Files.write(file, bytes);
+    }
+    
+    private static List<String> delimitersIn(DelimiterIndex index, int start, int end) {
+        List<String> delimiters = new ArrayList<>();
+        for (int i = index.firstAtOrAfter(start); i < index.size() && index.getOffset(i) < end; i++) {
+            delimiters.add(index.getOffset(i) + " length " + index.getLength(i) + " color " + index.getColorIndex(i));
+        }
+        return delimiters;
+    }
+    
+    // Surrogate pairs are kept together, the file holds valid UTF-8
+    private static String pick(Random random, int length) {
+        StringBuilder out = new StringBuilder(length);
+        while (out.length() < length) {
+            int i = random.nextInt(ALPHABET.length());
+            char ch = ALPHABET.charAt(i);
+            if (Character.isHighSurrogate(ch)) {
+                out.append(ch).append(ALPHABET.charAt(i + 1));
+            } else if (!Character.isLowSurrogate(ch)) {
+                out.append(ch);
+            }
+        }
+        return out.toString();
+    }
+    
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.event.CaretEvent;
+import com.intellij.openapi.editor.event.CaretListener;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
+import com.intellij.openapi.editor.markup.MarkupModel;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Outlines the opening and closing delimiters of the innermost pair around the caret. Each caret move
+ * is a lookup in the {@link NestingIndex} of the document's last scan; the index is built once per scan
+ * on a pooled thread, and nothing is shown until the scan of the current text is done.
+ */
+public class CaretScopeHighlighter implements EditorFactoryListener {
+    
+    private static final Key<Scope> SCOPE_KEY = Key.create("ColorfulDelimiter.CaretScope");
+    
+    @Override
+    public void editorCreated(@NotNull EditorFactoryEvent event) {
+        Editor editor = event.getEditor();
+        Project project = editor.getProject();
+        if (project == null || project.isDefault()) {
+            return;
+        }
+        Scope scope = new Scope(editor, project);
+        editor.putUserData(SCOPE_KEY, scope);
+        editor.getCaretModel().addCaretListener(scope, scope);
+        project.getMessageBus().connect(scope).subscribe(DaemonCodeAnalyzer.DAEMON_EVENT_TOPIC, scope);
+    }
+    
+    @Override
+    public void editorReleased(@NotNull EditorFactoryEvent event) {
+        Scope scope = event.getEditor().getUserData(SCOPE_KEY);
+        if (scope != null) {
+            event.getEditor().putUserData(SCOPE_KEY, null);
+            Disposer.dispose(scope);
+        }
+    }
+    
+    private static class Scope implements CaretListener, DaemonCodeAnalyzer.DaemonListener, Disposable {
+        private final Editor editor;
+        private final Project project;
+        private RangeHighlighter openHighlighter;
+        private RangeHighlighter closeHighlighter;
+        // Scan whose nesting index is being built, so it is only requested once
+        private DelimiterMatcher.ScanResult pending;
+        
+        Scope(Editor editor, Project project) {
+            this.editor = editor;
+            this.project = project;
+        }
+        
+        @Override
+        public void caretPositionChanged(@NotNull CaretEvent event) {
+            update();
+        }
+        
+        @Override
+        public void daemonFinished() {
+            update();
+        }
+        
+        private void update() {
+            if (editor.isDisposed()) {
+                return;
+            }
+            Document document = editor.getDocument();
+            DelimiterMatcher.ScanResult result = ColorfulDelimiterSettings.getInstance().getState().emphasizeCaretScope
+                ? DelimiterMatchCache.getCurrentScanResult(document) : null;
+            if (result == null) {
+                clear();
+                return;
+            }
+            if (!result.hasNestingIndex()) {
+                buildIndex(result, document);
+                return;
+            }
+            NestingIndex index = result.getNestingIndex();
+            int pair = index.enclosing(editor.getCaretModel().getOffset());
+            if (pair == NestingIndex.NONE) {
+                clear();
+                return;
+            }
+            int open = index.getOpenOffset(pair);
+            int close = index.getCloseOffset(pair) + 1 - index.getLength(pair);
+            if (openHighlighter != null && openHighlighter.isValid() && openHighlighter.getStartOffset() == open
+                && closeHighlighter.isValid() && closeHighlighter.getStartOffset() == close) {
+                return;
+            }
+            clear();
+            MarkupModel markupModel = editor.getMarkupModel();
+            int length = index.getLength(pair);
+            int layer = HighlighterLayer.SELECTION - 1;
+            openHighlighter = markupModel.addRangeHighlighter(open, open + length, layer,
+                ColorScheme.getScopeAttributes(index.getColorIndex(pair)), HighlighterTargetArea.EXACT_RANGE);
+            closeHighlighter = markupModel.addRangeHighlighter(close, close + length, layer,
+                ColorScheme.getScopeAttributes(index.getColorIndex(pair)), HighlighterTargetArea.EXACT_RANGE);
+        }
+        
+        private void buildIndex(DelimiterMatcher.ScanResult result, Document document) {
+            if (pending == result) {
+                return;
+            }
+            pending = result;
+            PsiFile file = PsiDocumentManager.getInstance(project).getCachedPsiFile(document);
+            String language = file != null ? file.getLanguage().getID() : "unknown";
+            int textLength = document.getTextLength();
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                DelimiterMatchCache.getNestingIndex(result, language, textLength);
+                ApplicationManager.getApplication().invokeLater(this::update, project.getDisposed());
+            });
+        }
+        
+        private void clear() {
+            if (openHighlighter != null) {
+                openHighlighter.dispose();
+                closeHighlighter.dispose();
+                openHighlighter = null;
+                closeHighlighter = null;
+            }
+        }
+        
+        @Override
+        public void dispose() {
+            clear();
+        }
+    }
+}
\ No newline at end of file
@@ -18,73 +18,151 @@
 
 package me.seungjun.colorfuldelimiter;
 
-import com.intellij.openapi.editor.colors.TextAttributesKey;
-import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.ide.ui.LafManager;
+import com.intellij.ide.ui.LafManagerListener;
+import com.intellij.openapi.editor.colors.EditorColorsListener;
+import com.intellij.openapi.editor.colors.EditorColorsManager;
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import com.intellij.openapi.editor.markup.EffectType;
 import com.intellij.openapi.editor.markup.TextAttributes;
-import com.intellij.ui.JBColor;
+import com.intellij.ui.ColorUtil;
+import org.jetbrains.annotations.NotNull;
 
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ColorScheme {
     
-    private static final Color[] COLORS = {
-        new JBColor(new Color(255, 69, 0), new Color(255, 100, 50)),     // Red Orange
-        new JBColor(new Color(50, 205, 50), new Color(100, 255, 100)),   // Lime Green
-        new JBColor(new Color(30, 144, 255), new Color(70, 180, 255)),   // Dodger Blue
-        new JBColor(new Color(255, 20, 147), new Color(255, 60, 180)),   // Deep Pink
-        new JBColor(new Color(255, 215, 0), new Color(255, 235, 50)),    // Gold
-        new JBColor(new Color(138, 43, 226), new Color(170, 80, 255)),   // Blue Violet
-        new JBColor(new Color(255, 140, 0), new Color(255, 170, 50)),    // Dark Orange
-        new JBColor(new Color(0, 255, 255), new Color(50, 255, 255)),    // Cyan
-        new JBColor(new Color(255, 105, 180), new Color(255, 130, 200)), // Hot Pink
-        new JBColor(new Color(124, 252, 0), new Color(150, 255, 50)),    // Lawn Green
-        new JBColor(new Color(255, 0, 255), new Color(255, 50, 255)),    // Magenta
-        new JBColor(new Color(255, 165, 0), new Color(255, 190, 50)),    // Orange
-        new JBColor(new Color(127, 255, 212), new Color(150, 255, 220)), // Aqua Marine
-        new JBColor(new Color(255, 99, 71), new Color(255, 120, 100)),   // Tomato
-        new JBColor(new Color(154, 205, 50), new Color(180, 230, 80)),   // Yellow Green
-        new JBColor(new Color(255, 20, 147), new Color(255, 60, 180)),   // Deep Pink
-        new JBColor(new Color(0, 191, 255), new Color(50, 210, 255)),    // Deep Sky Blue
-        new JBColor(new Color(255, 69, 0), new Color(255, 100, 50)),     // Red Orange
-        new JBColor(new Color(148, 0, 211), new Color(180, 50, 240)),    // Dark Violet
-        new JBColor(new Color(255, 255, 0), new Color(255, 255, 100))    // Yellow
+    // Light and dark editor variants of each default palette color
+    private static final Color[][] DEFAULT_PALETTE = {
+        {new Color(255, 69, 0), new Color(255, 100, 50)},   // Red Orange
+        {new Color(50, 205, 50), new Color(100, 255, 100)}, // Lime Green
+        {new Color(30, 144, 255), new Color(70, 180, 255)}, // Dodger Blue
+        {new Color(255, 20, 147), new Color(255, 60, 180)}, // Deep Pink
+        {new Color(255, 215, 0), new Color(255, 235, 50)},  // Gold
+        {new Color(138, 43, 226), new Color(170, 80, 255)}, // Blue Violet
+        {new Color(255, 140, 0), new Color(255, 170, 50)},  // Dark Orange
+        {new Color(0, 255, 255), new Color(50, 255, 255)},  // Cyan
+        {new Color(255, 105, 180), new Color(255, 130, 200)},// Hot Pink
+        {new Color(124, 252, 0), new Color(150, 255, 50)},  // Lawn Green
+        {new Color(255, 0, 255), new Color(255, 50, 255)},  // Magenta
+        {new Color(255, 165, 0), new Color(255, 190, 50)},  // Orange
+        {new Color(127, 255, 212), new Color(150, 255, 220)},// Aqua Marine
+        {new Color(255, 99, 71), new Color(255, 120, 100)}, // Tomato
+        {new Color(154, 205, 50), new Color(180, 230, 80)}, // Yellow Green
+        {new Color(255, 20, 147), new Color(255, 60, 180)}, // Deep Pink
+        {new Color(0, 191, 255), new Color(50, 210, 255)},  // Deep Sky Blue
+        {new Color(255, 69, 0), new Color(255, 100, 50)},   // Red Orange
+        {new Color(148, 0, 211), new Color(180, 50, 240)},  // Dark Violet
+        {new Color(255, 255, 0), new Color(255, 255, 100)}  // Yellow
     };
     
-    private static final Map<String, TextAttributesKey> ATTRIBUTE_KEYS = new HashMap<>();
+    /**
+     * Shared, immutable-by-convention attributes for each color index, built for the current editor
+     * scheme and settings so that annotating a delimiter never allocates.
+     */
+    private static class Palette {
+        final Color[] colors;
+        final TextAttributes[] attributes;
+        // Outline in the same color for the delimiters around the caret
+        final TextAttributes[] scopeAttributes;
+        
+        Palette(Color[] colors, boolean bold) {
+            this.colors = colors;
+            this.attributes = new TextAttributes[colors.length];
+            this.scopeAttributes = new TextAttributes[colors.length];
+            for (int i = 0; i < colors.length; i++) {
+                TextAttributes textAttributes = new TextAttributes();
+                textAttributes.setForegroundColor(colors[i]);
+                textAttributes.setFontType(bold ? Font.BOLD : Font.PLAIN);
+                textAttributes.setEffectType(null);
+                attributes[i] = textAttributes;
+                
+                TextAttributes outline = new TextAttributes();
+                outline.setEffectColor(colors[i]);
+                outline.setEffectType(EffectType.ROUNDED_BOX);
+                scopeAttributes[i] = outline;
+            }
+        }
+    }
     
-    static {
-        for (int i = 0; i < COLORS.length; i++) {
-            String keyName = "COLORFUL_DELIMITER_" + i;
-            TextAttributesKey key = TextAttributesKey.createTextAttributesKey(
-                keyName,
-                DefaultLanguageHighlighterColors.BRACKETS
-            );
-            ATTRIBUTE_KEYS.put(keyName, key);
+    private static volatile Palette palette;
+    
+    private static Palette palette() {
+        Palette current = palette;
+        if (current == null) {
+            current = buildPalette();
+            palette = current;
         }
+        return current;
     }
     
-    public static TextAttributesKey getAttributesKey(int colorIndex) {
-        String keyName = "COLORFUL_DELIMITER_" + (colorIndex % COLORS.length);
-        return ATTRIBUTE_KEYS.get(keyName);
+    /**
+     * Rebuilds the shared attributes, after the editor color scheme, the look and feel or the settings changed.
+     */
+    public static void rebuild() {
+        palette = buildPalette();
     }
     
-    public static TextAttributes getTextAttributes(int colorIndex) {
-        Color color = COLORS[colorIndex % COLORS.length];
+    private static Palette buildPalette() {
+        ColorfulDelimiterSettings.State settings = ColorfulDelimiterSettings.getInstance().getState();
+        boolean dark = EditorColorsManager.getInstance().isDarkEditor();
         
-        TextAttributes attributes = new TextAttributes();
-        attributes.setForegroundColor(color);
-        attributes.setFontType(Font.BOLD);
-        attributes.setEffectType(null);
-        return attributes;
+        List<Color> colors = new ArrayList<>();
+        for (String entry : settings.palette) {
+            Color color = parseColor(entry, dark);
+            if (color != null) {
+                colors.add(color);
+            }
+        }
+        if (colors.isEmpty()) {
+            for (Color[] variants : DEFAULT_PALETTE) {
+                colors.add(variants[dark ? 1 : 0]);
+            }
+        }
+        
+        // The depth cycle repeats the colors after the given number of nesting levels
+        int cycle = settings.depthCycle > 0 ? Math.min(settings.depthCycle, colors.size()) : colors.size();
+        return new Palette(colors.subList(0, cycle).toArray(new Color[0]), settings.bold);
+    }
+    
+    // Either "#RRGGBB" or "#RRGGBB/#RRGGBB" with separate light and dark editor variants
+    static Color parseColor(String entry, boolean dark) {
+        String[] variants = entry.trim().split("/");
+        String hex = variants[dark && variants.length > 1 ? 1 : 0].trim();
+        if (hex.startsWith("#")) {
+            hex = hex.substring(1);
+        }
+        if (!hex.matches("[0-9a-fA-F]{6}")) {
+            return null;
+        }
+        return ColorUtil.fromHex(hex);
+    }
+    
+    public static TextAttributes getTextAttributes(int colorIndex) {
+        TextAttributes[] attributes = palette().attributes;
+        return attributes[colorIndex % attributes.length];
+    }
+    
+    public static TextAttributes getScopeAttributes(int colorIndex) {
+        TextAttributes[] attributes = palette().scopeAttributes;
+        return attributes[colorIndex % attributes.length];
     }
     
     public static int getColorCount() {
-        return COLORS.length;
+        return palette().colors.length;
     }
     
-    public static Color[] getColors() {
-        return COLORS.clone();
+    public static class ThemeListener implements EditorColorsListener, LafManagerListener {
+        @Override
+        public void globalSchemeChange(EditorColorsScheme scheme) {
+            rebuild();
+        }
+        
+        @Override
+        public void lookAndFeelChanged(@NotNull LafManager source) {
+            rebuild();
+        }
     }
 }
\ No newline at end of file
@@ -19,19 +19,23 @@
 package me.seungjun.colorfuldelimiter;
 
 import com.intellij.lang.annotation.AnnotationHolder;
+import com.intellij.lang.annotation.AnnotationSession;
 import com.intellij.lang.annotation.Annotator;
 import com.intellij.lang.annotation.HighlightSeverity;
-import com.intellij.openapi.editor.colors.TextAttributesKey;
-import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.List;
-
 public class ColorfulDelimiterAnnotator implements Annotator {
     
+    private static final String VIEWPORT_FIRST_KEY = "colorful.delimiter.viewport.first";
+    private static final String MARKUP_LAYER_KEY = "colorful.delimiter.markup.layer";
+    
+    private static final Key<ScanMetrics.Pass> PASS_KEY = Key.create("ColorfulDelimiter.AnnotatePass");
+    
     @Override
     public void annotate(@NotNull PsiElement element, @NotNull AnnotationHolder holder) {
         PsiFile file = element.getContainingFile();
@@ -39,53 +43,78 @@ public class ColorfulDelimiterAnnotator implements Annotator {
             return;
         }
         
-        // Only process at the file level to avoid duplicate processing
-        if (element != file) {
-            return;
-        }
-        
-        List<DelimiterMatcher.DelimiterPair> delimiterPairs = DelimiterMatcher.findMatchingDelimiters(file);
-        
-        for (DelimiterMatcher.DelimiterPair pair : delimiterPairs) {
-            int openOffset = pair.getOpenOffset();
-            int closeOffset = pair.getCloseOffset();
-            
-            // Process opening delimiter/quote
-            if (pair.isQuote()) {
-                // Color only the opening quote characters
-                annotateQuoteChars(holder, openOffset, pair.getColorIndex(), pair.getQuoteLength());
-            } else {
-                annotateDelimiter(holder, openOffset, pair.getColorIndex());
-            }
-            
-            // Process closing delimiter/quote
-            if (pair.isQuote()) {
-                // Color only the closing quote characters
-                annotateQuoteChars(holder, closeOffset - pair.getQuoteLength() + 1, pair.getColorIndex(), pair.getQuoteLength());
-            } else {
-                annotateDelimiter(holder, closeOffset, pair.getColorIndex());
+        // Otherwise the whole file is colored at once by ColorfulDelimiterExternalAnnotator
+        if (isViewportFirst() && !isMarkupLayer()) {
+            annotateLeaf(element, file, holder);
+            // The file itself is annotated after all of its elements
+            ScanMetrics.Pass pass = holder.getCurrentAnnotationSession().getUserData(PASS_KEY);
+            if (element == file && pass != null) {
+                pass.finish();
             }
         }
     }
     
-    private void annotateDelimiter(AnnotationHolder holder, int offset, int colorIndex) {
-        TextRange range = new TextRange(offset, offset + 1);
-        TextAttributes attributes = ColorScheme.getTextAttributes(colorIndex);
-        
-        holder.newSilentAnnotation(HighlightSeverity.INFORMATION)
-                .range(range)
-                .enforcedTextAttributes(attributes)
-                .create();
+    static boolean isViewportFirst() {
+        return Registry.is(VIEWPORT_FIRST_KEY, true);
+    }
+    
+    // Colors are then kept by DelimiterMarkupLayer, updated from ColorfulDelimiterExternalAnnotator
+    static boolean isMarkupLayer() {
+        return Registry.is(MARKUP_LAYER_KEY, false);
     }
     
-    private void annotateQuoteChars(AnnotationHolder holder, int offset, int colorIndex, int quoteLength) {
-        // Only color the quote characters themselves, not the content
-        TextRange range = new TextRange(offset, offset + quoteLength);
-        TextAttributes attributes = ColorScheme.getTextAttributes(colorIndex);
+    /**
+     * Colors the delimiters inside a leaf element. The highlighting pass runs annotators on the elements
+     * in the visible range first and shows their results before moving on, so colors appear on screen
+     * without waiting for the rest of the file. A large file's first scan stops after the visible range,
+     * where its colors can no longer change, and the first leaf past it has the rest scanned.
+     */
+    private void annotateLeaf(PsiElement element, PsiFile file, AnnotationHolder holder) {
+        if (element.getFirstChild() != null) {
+            return;
+        }
+        
+        TextRange elementRange = element.getTextRange();
+        if (elementRange == null || elementRange.isEmpty()) {
+            return;
+        }
+        int start = elementRange.getStartOffset();
+        int end = elementRange.getEndOffset();
+        
+        // A triple quote may start in the previous leaf
+        int from = Math.max(0, start - DelimiterIndex.MAX_LENGTH + 1);
+        TextRange visibleRange = holder.getCurrentAnnotationSession().getPriorityRange();
+        DelimiterIndex index = DelimiterMatchCache.getDelimiterIndex(file, visibleRange, from, end);
+        int first = index.firstAtOrAfter(from);
+        if (first == index.size() || index.getOffset(first) >= end) {
+            return;
+        }
         
-        holder.newSilentAnnotation(HighlightSeverity.INFORMATION)
-                .range(range)
-                .enforcedTextAttributes(attributes)
-                .create();
+        // Measured as one pass over the file, only in the leaves with delimiters
+        AnnotationSession session = holder.getCurrentAnnotationSession();
+        ScanMetrics.Pass pass = session.getUserData(PASS_KEY);
+        if (pass == null) {
+            pass = ScanMetrics.getInstance().startPass(ScanMetrics.Phase.ANNOTATE, file.getLanguage().getID(),
+                file.getTextLength());
+            session.putUserData(PASS_KEY, pass);
+        }
+        pass.beginStep();
+        int count = 0;
+        for (int i = first; i < index.size() && index.getOffset(i) < end; i++) {
+            int offset = index.getOffset(i);
+            int delimiterEnd = offset + index.getLength(i);
+            if (delimiterEnd <= start) {
+                continue;
+            }
+            
+            // Annotations must stay inside the element being annotated
+            TextRange range = new TextRange(Math.max(offset, start), Math.min(delimiterEnd, end));
+            holder.newSilentAnnotation(HighlightSeverity.INFORMATION)
+                    .range(range)
+                    .enforcedTextAttributes(ColorScheme.getTextAttributes(index.getColorIndex(i)))
+                    .create();
+            count++;
+        }
+        pass.endStep(count);
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.ui.FormBuilder;
+import org.jetbrains.annotations.Nls;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ColorfulDelimiterConfigurable implements Configurable {
+    
+    private static final int MIN_FILE_LENGTH = 10_000;
+    // Hand-written code rarely has lines this long
+    private static final int MIN_LINE_LENGTH = 500;
+    
+    private JBTextArea paletteArea;
+    private JSpinner depthCycleSpinner;
+    private JBCheckBox boldCheckBox;
+    private JBCheckBox caretScopeCheckBox;
+    private JSpinner largeFileSpinner;
+    private JSpinner maxFileSpinner;
+    private JSpinner longLineSpinner;
+    private JSpinner depthCapSpinner;
+    private JSpinner timeBudgetSpinner;
+    private JBCheckBox streamLargeFilesCheckBox;
+    
+    @Override
+    public @Nls String getDisplayName() {
+        return "Colorful Delimiter";
+    }
+    
+    @Override
+    public JComponent createComponent() {
+        paletteArea = new JBTextArea(10, 30);
+        depthCycleSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 1000, 1));
+        boldCheckBox = new JBCheckBox("Bold delimiters");
+        caretScopeCheckBox = new JBCheckBox("Outline the delimiters around the caret");
+        // ScanPolicy takes these limits literally, so a limit of 0 would leave every file uncolored
+        largeFileSpinner = new JSpinner(new SpinnerNumberModel(MIN_FILE_LENGTH, MIN_FILE_LENGTH, Integer.MAX_VALUE, 100_000));
+        maxFileSpinner = new JSpinner(new SpinnerNumberModel(MIN_FILE_LENGTH, MIN_FILE_LENGTH, Integer.MAX_VALUE, 1_000_000));
+        longLineSpinner = new JSpinner(new SpinnerNumberModel(MIN_LINE_LENGTH, MIN_LINE_LENGTH, Integer.MAX_VALUE, 1_000));
+        depthCapSpinner = new JSpinner(new SpinnerNumberModel(1, 1, 1000, 1));
+        timeBudgetSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 60_000, 50));
+        streamLargeFilesCheckBox = new JBCheckBox("Color the visible part of files too large to parse");
+        
+        return FormBuilder.createFormBuilder()
+            .addLabeledComponent("Palette (one #RRGGBB or #light/#dark per line, empty for default):", new JBScrollPane(paletteArea), true)
+            .addLabeledComponent("Colors per depth cycle (0 for the whole palette):", depthCycleSpinner)
+            .addComponent(boldCheckBox)
+            .addComponent(caretScopeCheckBox)
+            .addSeparator()
+            .addLabeledComponent("Skip quotes in files longer than (characters):", largeFileSpinner)
+            .addLabeledComponent("Don't color files longer than (characters):", maxFileSpinner)
+            .addLabeledComponent("Treat files as minified with lines longer than (characters):", longLineSpinner)
+            .addLabeledComponent("Nesting depth colored in minified files:", depthCapSpinner)
+            .addLabeledComponent("Time budget per scan (ms, 0 for no limit):", timeBudgetSpinner)
+            .addComponent(streamLargeFilesCheckBox)
+            .addComponentFillVertically(new JPanel(), 0)
+            .getPanel();
+    }
+    
+    @Override
+    public boolean isModified() {
+        ColorfulDelimiterSettings.State state = ColorfulDelimiterSettings.getInstance().getState();
+        return !paletteLines().equals(state.palette)
+            || (Integer) depthCycleSpinner.getValue() != state.depthCycle
+            || boldCheckBox.isSelected() != state.bold
+            || caretScopeCheckBox.isSelected() != state.emphasizeCaretScope
+            || (Integer) largeFileSpinner.getValue() != state.largeFileLength
+            || (Integer) maxFileSpinner.getValue() != state.maxFileLength
+            || (Integer) longLineSpinner.getValue() != state.longLineLength
+            || (Integer) depthCapSpinner.getValue() != state.depthCap
+            || (Integer) timeBudgetSpinner.getValue() != state.timeBudgetMillis
+            || streamLargeFilesCheckBox.isSelected() != state.streamLargeFiles;
+    }
+    
+    @Override
+    public void apply() {
+        ColorfulDelimiterSettings settings = ColorfulDelimiterSettings.getInstance();
+        ColorfulDelimiterSettings.State state = settings.getState();
+        state.palette = paletteLines();
+        state.depthCycle = (Integer) depthCycleSpinner.getValue();
+        state.bold = boldCheckBox.isSelected();
+        state.emphasizeCaretScope = caretScopeCheckBox.isSelected();
+        state.largeFileLength = (Integer) largeFileSpinner.getValue();
+        state.maxFileLength = (Integer) maxFileSpinner.getValue();
+        state.longLineLength = (Integer) longLineSpinner.getValue();
+        state.depthCap = (Integer) depthCapSpinner.getValue();
+        state.timeBudgetMillis = (Integer) timeBudgetSpinner.getValue();
+        state.streamLargeFiles = streamLargeFilesCheckBox.isSelected();
+        settings.incModificationCount();
+        
+        ColorScheme.rebuild();
+        for (Project project : ProjectManager.getInstance().getOpenProjects()) {
+            DaemonCodeAnalyzer.getInstance(project).restart();
+        }
+    }
+    
+    @Override
+    public void reset() {
+        ColorfulDelimiterSettings.State state = ColorfulDelimiterSettings.getInstance().getState();
+        paletteArea.setText(String.join("\n", state.palette));
+        depthCycleSpinner.setValue(state.depthCycle);
+        boldCheckBox.setSelected(state.bold);
+        caretScopeCheckBox.setSelected(state.emphasizeCaretScope);
+        largeFileSpinner.setValue(state.largeFileLength);
+        maxFileSpinner.setValue(state.maxFileLength);
+        longLineSpinner.setValue(state.longLineLength);
+        depthCapSpinner.setValue(state.depthCap);
+        timeBudgetSpinner.setValue(state.timeBudgetMillis);
+        streamLargeFilesCheckBox.setSelected(state.streamLargeFiles);
+    }
+    
+    @Override
+    public void disposeUIResources() {
+        paletteArea = null;
+        depthCycleSpinner = null;
+        boldCheckBox = null;
+        caretScopeCheckBox = null;
+        largeFileSpinner = null;
+        maxFileSpinner = null;
+        longLineSpinner = null;
+        depthCapSpinner = null;
+        timeBudgetSpinner = null;
+        streamLargeFilesCheckBox = null;
+    }
+    
+    private List<String> paletteLines() {
+        List<String> lines = new ArrayList<>();
+        for (String line : paletteArea.getText().split("\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.lang.annotation.AnnotationHolder;
+import com.intellij.lang.annotation.ExternalAnnotator;
+import com.intellij.lang.annotation.HighlightSeverity;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Colors the whole file at once when element-by-element coloring is turned off. The scan runs in the
+ * background after the main highlighting pass and is canceled as soon as the document changes again;
+ * the annotations are then applied in one batch, or handed to {@link DelimiterMarkupLayer} when
+ * coloring with range highlighters is turned on.
+ */
+public class ColorfulDelimiterExternalAnnotator extends ExternalAnnotator<PsiFile, DelimiterIndex> {
+    
+    @Override
+    public @Nullable PsiFile collectInformation(@NotNull PsiFile file) {
+        if (ColorfulDelimiterAnnotator.isMarkupLayer() || !ColorfulDelimiterAnnotator.isViewportFirst()) {
+            return file;
+        }
+        // Still runs once after the markup layer is turned off, to remove its highlighters
+        Document document = PsiDocumentManager.getInstance(file.getProject()).getDocument(file);
+        return document != null && DelimiterMarkupLayer.isShown(document, file.getProject()) ? file : null;
+    }
+    
+    @Override
+    public @Nullable DelimiterIndex doAnnotate(PsiFile file) {
+        // The scanning loops check for cancellation, so this read action gives way to the next edit quickly
+        return ReadAction.compute(() -> {
+            if (!file.isValid()) {
+                return null;
+            }
+            return DelimiterMatchCache.getDelimiterIndex(file);
+        });
+    }
+    
+    @Override
+    public void apply(@NotNull PsiFile file, DelimiterIndex index, @NotNull AnnotationHolder holder) {
+        if (index == null) {
+            return;
+        }
+        Project project = file.getProject();
+        Document document = PsiDocumentManager.getInstance(project).getDocument(file);
+        if (document != null && (ColorfulDelimiterAnnotator.isMarkupLayer()
+            || DelimiterMarkupLayer.isShown(document, project))) {
+            updateMarkupLayer(file, document, index);
+        }
+        if (ColorfulDelimiterAnnotator.isMarkupLayer() || ColorfulDelimiterAnnotator.isViewportFirst()) {
+            return;
+        }
+        
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.ANNOTATE, file.getLanguage().getID(),
+            file.getTextLength());
+        for (int i = 0; i < index.size(); i++) {
+            if ((i & 0xFFF) == 0) {
+                ProgressManager.checkCanceled();
+            }
+            int offset = index.getOffset(i);
+            holder.newSilentAnnotation(HighlightSeverity.INFORMATION)
+                    .range(new TextRange(offset, offset + index.getLength(i)))
+                    .enforcedTextAttributes(ColorScheme.getTextAttributes(index.getColorIndex(i)))
+                    .create();
+        }
+        sample.finish(null, index.size(), 0);
+    }
+    
+    private static void updateMarkupLayer(PsiFile file, Document document, DelimiterIndex index) {
+        Project project = file.getProject();
+        String language = file.getLanguage().getID();
+        long stamp = document.getModificationStamp();
+        // Markup changes are kept out of the highlighting pass; a newer scan will follow an edit anyway
+        ApplicationManager.getApplication().invokeLater(() -> {
+            if (document.getModificationStamp() != stamp) {
+                return;
+            }
+            if (ColorfulDelimiterAnnotator.isMarkupLayer()) {
+                DelimiterMarkupLayer.update(document, project, language, index);
+            } else {
+                DelimiterMarkupLayer.clear(document, project);
+            }
+        }, project.getDisposed());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@State(name = "ColorfulDelimiterSettings", storages = @Storage("colorfulDelimiter.xml"))
+public class ColorfulDelimiterSettings implements PersistentStateComponent<ColorfulDelimiterSettings.State> {
+    
+    public static class State {
+        // "#RRGGBB" or "#RRGGBB/#RRGGBB" (light/dark) entries; empty for the built-in palette
+        public List<String> palette = new ArrayList<>();
+        // Number of nesting levels before colors repeat; 0 for the whole palette
+        public int depthCycle = 0;
+        public boolean bold = true;
+        // Outline the delimiters of the innermost pair around the caret
+        public boolean emphasizeCaretScope = true;
+        
+        // Files longer than this (in characters) lose quote coloring
+        public int largeFileLength = 1_000_000;
+        // Files longer than this are not colored at all
+        public int maxFileLength = 10_000_000;
+        // Files with a line this long are treated as minified
+        public int longLineLength = 10_000;
+        // Nesting depth from which brackets in minified files are left uncolored
+        public int depthCap = 16;
+        // Time a scan may take before falling back to bracket-only matching; 0 for no limit
+        public int timeBudgetMillis = 200;
+        // Color the visible part of files too large for the IDE to parse, reading them from disk
+        public boolean streamLargeFiles = true;
+    }
+    
+    private State state = new State();
+    private volatile long modificationCount;
+    
+    public static ColorfulDelimiterSettings getInstance() {
+        return ApplicationManager.getApplication().getService(ColorfulDelimiterSettings.class);
+    }
+    
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+    
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+        incModificationCount();
+        ColorScheme.rebuild();
+    }
+    
+    /**
+     * Changes whenever the settings are changed, so results computed with the old settings can be dropped.
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+    
+    public void incModificationCount() {
+        modificationCount++;
+    }
+}
\ No newline at end of file
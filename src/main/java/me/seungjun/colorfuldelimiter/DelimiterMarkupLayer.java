@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.impl.DocumentMarkupModel;
+import com.intellij.openapi.editor.markup.HighlighterLayer;
+import com.intellij.openapi.editor.markup.HighlighterTargetArea;
+import com.intellij.openapi.editor.markup.MarkupModel;
+import com.intellij.openapi.editor.markup.RangeHighlighter;
+import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Colors delimiters with range highlighters of its own in the document's markup model instead of
+ * annotations, which the daemon recreates on every pass. Highlighters follow edits by themselves, so
+ * a new scan only removes the ones that no longer match a delimiter and adds the missing ones. Editors
+ * that each show a different part of a document have a layer of their own in the editor's markup model.
+ * Must be used on the event dispatch thread.
+ */
+public class DelimiterMarkupLayer {
+    
+    private static final Key<DelimiterMarkupLayer> LAYER_KEY = Key.create("ColorfulDelimiter.MarkupLayer");
+    
+    private final MarkupModel markupModel;
+    // Sorted by start offset, with the attributes each one was created with
+    private List<RangeHighlighter> highlighters = new ArrayList<>();
+    private List<TextAttributes> attributes = new ArrayList<>();
+    
+    private DelimiterMarkupLayer(MarkupModel markupModel) {
+        this.markupModel = markupModel;
+    }
+    
+    /**
+     * Updates the document's highlighters to the delimiters of its current scan.
+     */
+    public static void update(Document document, Project project, String language, DelimiterIndex index) {
+        update(DocumentMarkupModel.forDocument(document, project, true), language, document.getTextLength(), index);
+    }
+    
+    /**
+     * Updates the editor's own highlighters to the delimiters it shows, leaving other editors of the document alone.
+     */
+    public static void update(Editor editor, String language, DelimiterIndex index) {
+        update(editor.getMarkupModel(), language, editor.getDocument().getTextLength(), index);
+    }
+    
+    private static void update(MarkupModel markupModel, String language, int length, DelimiterIndex index) {
+        DelimiterMarkupLayer layer = markupModel.getUserData(LAYER_KEY);
+        if (layer == null) {
+            layer = new DelimiterMarkupLayer(markupModel);
+            markupModel.putUserData(LAYER_KEY, layer);
+        }
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.ANNOTATE, language, length);
+        int changed = layer.apply(DelimiterRuns.build(index));
+        sample.finish(null, changed, 0);
+    }
+    
+    public static boolean isShown(Document document, Project project) {
+        MarkupModel markupModel = DocumentMarkupModel.forDocument(document, project, false);
+        return markupModel != null && markupModel.getUserData(LAYER_KEY) != null;
+    }
+    
+    /**
+     * Removes the document's highlighters, when coloring goes back to annotations.
+     */
+    public static void clear(Document document, Project project) {
+        clear(DocumentMarkupModel.forDocument(document, project, false));
+    }
+    
+    /**
+     * Removes the editor's own highlighters.
+     */
+    public static void clear(Editor editor) {
+        clear(editor.getMarkupModel());
+    }
+    
+    private static void clear(MarkupModel markupModel) {
+        DelimiterMarkupLayer layer = markupModel != null ? markupModel.getUserData(LAYER_KEY) : null;
+        if (layer != null) {
+            layer.apply(null);
+            markupModel.putUserData(LAYER_KEY, null);
+        }
+    }
+    
+    // Returns the number of highlighters added and removed
+    private int apply(DelimiterRuns runs) {
+        int runCount = runs != null ? runs.size() : 0;
+        List<RangeHighlighter> nextHighlighters = new ArrayList<>(runCount);
+        List<TextAttributes> nextAttributes = new ArrayList<>(runCount);
+        int changed = 0;
+        int live = 0;
+        for (int run = 0; run < runCount; run++) {
+            int start = runs.getStart(run);
+            int end = runs.getEnd(run);
+            TextAttributes textAttributes = ColorScheme.getTextAttributes(runs.getColorIndex(run));
+            
+            // Both lists are sorted, so highlighters before this run match nothing in the new scan
+            while (live < highlighters.size() && isBefore(highlighters.get(live), start)) {
+                remove(highlighters.get(live++));
+                changed++;
+            }
+            if (live < highlighters.size()) {
+                RangeHighlighter highlighter = highlighters.get(live);
+                // A palette change replaces the shared attributes, so it also counts as a mismatch
+                if (highlighter.getStartOffset() == start && highlighter.getEndOffset() == end
+                    && attributes.get(live) == textAttributes) {
+                    nextHighlighters.add(highlighter);
+                    nextAttributes.add(textAttributes);
+                    live++;
+                    continue;
+                }
+                if (highlighter.getStartOffset() == start) {
+                    remove(highlighter);
+                    live++;
+                    changed++;
+                }
+            }
+            nextHighlighters.add(markupModel.addRangeHighlighter(start, end, HighlighterLayer.ADDITIONAL_SYNTAX,
+                textAttributes, HighlighterTargetArea.EXACT_RANGE));
+            nextAttributes.add(textAttributes);
+            changed++;
+        }
+        while (live < highlighters.size()) {
+            remove(highlighters.get(live++));
+            changed++;
+        }
+        highlighters = nextHighlighters;
+        attributes = nextAttributes;
+        return changed;
+    }
+    
+    private void remove(RangeHighlighter highlighter) {
+        // Someone else may have cleared the markup model
+        if (highlighter.isValid()) {
+            markupModel.removeHighlighter(highlighter);
+        }
+    }
+    
+    // Removed highlighters and ones squeezed out of order by an edit are dropped
+    private static boolean isBefore(RangeHighlighter highlighter, int start) {
+        return !highlighter.isValid() || highlighter.getStartOffset() < start;
+    }
+}
\ No newline at end of file
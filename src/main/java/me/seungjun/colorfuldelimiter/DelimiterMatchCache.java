@@ -0,0 +1,362 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.ide.plugins.IdeaPluginDescriptor;
+import com.intellij.ide.plugins.PluginManagerCore;
+import com.intellij.openapi.application.ApplicationInfo;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.extensions.PluginId;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.ui.EditorNotifications;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Paths;
+import java.util.function.IntFunction;
+
+/**
+ * Per-document scan state keyed on the modification stamp. Edits made since the last scan are
+ * collected as one dirty region, so the next highlighting pass only rescans around it. Scans hold
+ * the cache's lock; the dirty region has its own, so that edits never wait for a scan.
+ */
+public class DelimiterMatchCache implements DocumentListener {
+    
+    private static final Key<DelimiterMatchCache> CACHE_KEY = Key.create("ColorfulDelimiter.MatchCache");
+    
+    private static final int NO_CHANGE = Integer.MAX_VALUE;
+    
+    private static final CancellationCheck CANCELLATION = ProgressManager::checkCanceled;
+    
+    // Smaller files scan faster than their stored results are found
+    private static final int STORED_MIN_LENGTH = 256 * 1024;
+    private static final long MAX_STORED_BYTES = 256L * 1024 * 1024;
+    // Room around the visible range for scrolling before the rest of a large file is scanned
+    private static final int VISIBLE_MARGIN = 4096;
+    
+    private volatile DelimiterMatcher.ScanResult result;
+    // Written after the result, see getCurrentScanResult
+    private volatile long modificationStamp = -1;
+    private int scannedLength;
+    // Color indices are reduced modulo the palette size, so a new palette size needs a full scan
+    private int colorCount;
+    private long settingsModificationCount = -1;
+    // A first scan that stopped after the visible range, finished once something past it is asked for
+    private DelimiterMatcher.ScanResult partial;
+    private long partialStamp;
+    private long partialKey;
+    
+    // Length of the unchanged prefix and suffix of the text since the last scan, guarded by dirtyLock
+    private final Object dirtyLock = new Object();
+    private int dirtyStart = NO_CHANGE;
+    private int cleanSuffix = NO_CHANGE;
+    private long editCount;
+    
+    public static DelimiterMatcher.ScanResult getScanResult(PsiFile file) {
+        return getScanResult(file, null);
+    }
+    
+    // With a visible range, the result may be one that stopped after it, see scanOrLoad
+    private static DelimiterMatcher.ScanResult getScanResult(PsiFile file, TextRange visibleRange) {
+        PsiDocumentManager documentManager = PsiDocumentManager.getInstance(file.getProject());
+        Document document = documentManager.getDocument(file);
+        if (document == null || !documentManager.isCommitted(document)) {
+            // The PSI doesn't match the document text yet, so its offsets can't be cached against it
+            CharSequence text = file.getViewProvider().getContents();
+            return createScanPolicy().scan(text, DelimiterProfile.forLanguage(file.getLanguage().getID()),
+                tokenSource(file, text));
+        }
+        
+        DelimiterMatchCache cache = document.getUserData(CACHE_KEY);
+        if (cache == null) {
+            synchronized (DelimiterMatchCache.class) {
+                cache = document.getUserData(CACHE_KEY);
+                if (cache == null) {
+                    cache = new DelimiterMatchCache();
+                    document.putUserData(CACHE_KEY, cache);
+                    document.addDocumentListener(cache);
+                }
+            }
+        }
+        return cache.update(file, document, visibleRange);
+    }
+    
+    private synchronized DelimiterMatcher.ScanResult update(PsiFile file, Document document, TextRange visibleRange) {
+        long stamp = document.getModificationStamp();
+        long settingsCount = ColorfulDelimiterSettings.getInstance().getModificationCount();
+        if (colorCount != ColorScheme.getColorCount() || settingsModificationCount != settingsCount) {
+            colorCount = ColorScheme.getColorCount();
+            settingsModificationCount = settingsCount;
+            result = null;
+            partial = null;
+        }
+        if (result != null && stamp == modificationStamp) {
+            return result;
+        }
+        if (partial != null && partialStamp != stamp) {
+            partial = null;
+        }
+        if (partial != null && visibleRange != null) {
+            return partial;
+        }
+        
+        CharSequence text = document.getImmutableCharSequence();
+        int changeStart;
+        int changeSuffix;
+        long changeCount;
+        synchronized (dirtyLock) {
+            changeStart = dirtyStart;
+            changeSuffix = cleanSuffix;
+            changeCount = editCount;
+        }
+        if (result == null || changeStart != NO_CHANGE) {
+            DelimiterMatcher.ScanResult previous = result;
+            int oldDirtyEnd = scannedLength - changeSuffix;
+            int newDirtyEnd = text.length() - changeSuffix;
+            
+            // The lexer already knows where comments and strings are; the text scanner is only
+            // used for plain text and languages without a highlighting lexer
+            ScanPolicy policy = createScanPolicy();
+            DelimiterProfile profile = DelimiterProfile.forLanguage(file.getLanguage().getID());
+            IntFunction<DelimiterTokenStream> tokens = tokenSource(file, text);
+            String language = file.getLanguage().getID();
+            if (previous == null && partial != null) {
+                ScanMetrics.Phase phase = partial.isFromTokens() ? ScanMetrics.Phase.TOKEN_SCAN : ScanMetrics.Phase.SCAN;
+                ScanMetrics.Sample sample = ScanMetrics.getInstance().start(phase, language, text.length());
+                result = policy.finish(partial, text, profile, tokens);
+                sample.finish(result);
+                save(partialKey, text.length(), result);
+                partial = null;
+            } else if (previous == null) {
+                DelimiterMatcher.ScanResult scanned = scanOrLoad(file, text, policy, profile, tokens, visibleRange);
+                if (!scanned.isComplete()) {
+                    // Not the cached result yet, edits are only tracked against complete ones
+                    partial = scanned;
+                    partialStamp = stamp;
+                    return scanned;
+                }
+                result = scanned;
+            } else {
+                ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.RESCAN, language, text.length());
+                result = policy.rescan(previous, text, profile, tokens, changeStart, oldDirtyEnd, newDirtyEnd);
+                sample.finish(result);
+            }
+            
+            if (previous == null ? result.getMode() != ScanMode.FULL : result.getMode() != previous.getMode()) {
+                VirtualFile virtualFile = file.getVirtualFile();
+                if (virtualFile != null) {
+                    EditorNotifications.getInstance(file.getProject()).updateNotifications(virtualFile);
+                }
+            }
+            
+            // Element-level annotations are only redone for the edited part of the file, so an edit that
+            // recolors delimiters elsewhere needs the whole file highlighted again
+            if (ColorfulDelimiterAnnotator.isViewportFirst() && previous != null && previous.hasDelimiterIndex()
+                    && !result.getDelimiterIndex().sameOutsideEdit(previous.getDelimiterIndex(), result.getChangedStart(),
+                    result.getChangedEnd(), changeStart, oldDirtyEnd, newDirtyEnd)) {
+                DaemonCodeAnalyzer.getInstance(file.getProject()).restart(file);
+            }
+        }
+        
+        modificationStamp = stamp;
+        scannedLength = text.length();
+        synchronized (dirtyLock) {
+            // Edits that came in meanwhile stay in the region, which then also covers some already scanned
+            if (editCount == changeCount) {
+                dirtyStart = NO_CHANGE;
+                cleanSuffix = NO_CHANGE;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the delimiter index of the file's current scan, building it on first use.
+     */
+    public static DelimiterIndex getDelimiterIndex(PsiFile file) {
+        return getDelimiterIndex(getScanResult(file), file);
+    }
+    
+    /**
+     * Returns a delimiter index whose delimiters in [start, end) are colored as in the file's current scan.
+     * The first time a large file is highlighted, that may be the index of a scan that stopped after the
+     * visible range; anything past it is only colored once the rest of the file is scanned.
+     */
+    public static DelimiterIndex getDelimiterIndex(PsiFile file, TextRange visibleRange, int start, int end) {
+        DelimiterMatcher.ScanResult result = getScanResult(file, visibleRange);
+        if (!result.isFinalIn(start, end)) {
+            result = getScanResult(file);
+        }
+        return getDelimiterIndex(result, file);
+    }
+    
+    private static DelimiterIndex getDelimiterIndex(DelimiterMatcher.ScanResult result, PsiFile file) {
+        if (result.hasDelimiterIndex()) {
+            return result.getDelimiterIndex();
+        }
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.INDEX, file.getLanguage().getID(),
+            file.getTextLength());
+        DelimiterIndex index = result.getDelimiterIndex();
+        sample.finish(result.getMode(), result.getPairs().size(), 0);
+        return index;
+    }
+    
+    /**
+     * Returns the nesting index of the file's current scan, building it on first use.
+     */
+    public static NestingIndex getNestingIndex(PsiFile file) {
+        return getNestingIndex(getScanResult(file), file.getLanguage().getID(), file.getTextLength());
+    }
+    
+    static NestingIndex getNestingIndex(DelimiterMatcher.ScanResult result, String language, int textLength) {
+        if (result.hasNestingIndex()) {
+            return result.getNestingIndex();
+        }
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.NESTING, language, textLength);
+        NestingIndex index = result.getNestingIndex();
+        sample.finish(result.getMode(), result.getPairs().size(), 0);
+        return index;
+    }
+    
+    /**
+     * Returns the last scan of the document if it is of the current text, or null, without scanning or
+     * waiting for a scan in progress.
+     */
+    public static DelimiterMatcher.ScanResult getCurrentScanResult(Document document) {
+        DelimiterMatchCache cache = document.getUserData(CACHE_KEY);
+        if (cache == null) {
+            return null;
+        }
+        // Read before the result, so a matching stamp means the result was stored for this text
+        long stamp = cache.modificationStamp;
+        DelimiterMatcher.ScanResult result = cache.result;
+        return stamp == document.getModificationStamp() ? result : null;
+    }
+    
+    /**
+     * Returns the mode of the last scan of the document, or null when it hasn't been scanned.
+     */
+    public static ScanMode getScanMode(Document document) {
+        DelimiterMatchCache cache = document.getUserData(CACHE_KEY);
+        if (cache == null) {
+            return null;
+        }
+        // Read without the lock, which is held for the whole scan
+        DelimiterMatcher.ScanResult result = cache.result;
+        return result != null ? result.getMode() : null;
+    }
+    
+    private static ScanPolicy createScanPolicy() {
+        ColorfulDelimiterSettings.State settings = ColorfulDelimiterSettings.getInstance().getState();
+        return new ScanPolicy(settings.largeFileLength, settings.maxFileLength, settings.longLineLength,
+            settings.depthCap, settings.timeBudgetMillis, ColorScheme.getColorCount(), CANCELLATION);
+    }
+    
+    // Large files are often generated or vendored and reopened unchanged, so their results are kept across sessions
+    private DelimiterMatcher.ScanResult scanOrLoad(PsiFile file, CharSequence text, ScanPolicy policy, DelimiterProfile profile,
+                                                   IntFunction<DelimiterTokenStream> tokens, TextRange visibleRange) {
+        String language = file.getLanguage().getID();
+        ScanMetrics.Phase phase = tokens != null ? ScanMetrics.Phase.TOKEN_SCAN : ScanMetrics.Phase.SCAN;
+        if (text.length() < STORED_MIN_LENGTH) {
+            ScanMetrics.Sample sample = ScanMetrics.getInstance().start(phase, language, text.length());
+            DelimiterMatcher.ScanResult result = policy.scan(text, profile, tokens);
+            sample.finish(result);
+            return result;
+        }
+        
+        // Lexer tokens can change with the IDE version
+        String variant = language + "/" + (tokens != null ? "lexer" : "text") + "/"
+            + policy.getCacheKey() + "/" + Store.VERSIONS;
+        ScanMetrics.Sample loadSample = ScanMetrics.getInstance().start(ScanMetrics.Phase.LOAD, language, text.length());
+        long key = ScanResultStore.key(text, variant);
+        DelimiterMatcher.ScanResult stored = Store.INSTANCE.load(key, text.length(), profile, CANCELLATION);
+        if (stored != null) {
+            loadSample.finish(stored);
+            return stored;
+        }
+        
+        // A miss isn't recorded, it only costs hashing the text
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(phase, language, text.length());
+        DelimiterMatcher.ScanResult result;
+        if (visibleRange != null && visibleRange.getEndOffset() + VISIBLE_MARGIN < text.length()) {
+            result = policy.scanVisible(text, profile, tokens, Math.max(0, visibleRange.getStartOffset() - VISIBLE_MARGIN),
+                visibleRange.getEndOffset() + VISIBLE_MARGIN);
+        } else {
+            result = policy.scan(text, profile, tokens);
+        }
+        sample.finish(result);
+        if (!result.isComplete()) {
+            partialKey = key;
+            return result;
+        }
+        save(key, text.length(), result);
+        return result;
+    }
+    
+    // A bracket-only result means the scan ran out of time, which may not happen the next time
+    private static void save(long key, int length, DelimiterMatcher.ScanResult result) {
+        if (result.getMode() != ScanMode.OFF && result.getMode() != ScanMode.BRACKETS_ONLY) {
+            ApplicationManager.getApplication().executeOnPooledThread(() -> Store.INSTANCE.save(key, length, result));
+        }
+    }
+    
+    // Tokens are only created when the scan mode needs them
+    private static IntFunction<DelimiterTokenStream> tokenSource(PsiFile file, CharSequence text) {
+        if (!LexerTokenStream.isSupported(file)) {
+            return null;
+        }
+        return offset -> LexerTokenStream.create(file, text, offset);
+    }
+    
+    // Created on first use, only needed once a large file is opened
+    private static class Store {
+        static final ScanResultStore INSTANCE = new ScanResultStore(
+            Paths.get(PathManager.getSystemPath(), "colorful-delimiter", "scans"), MAX_STORED_BYTES);
+        static final String VERSIONS = ApplicationInfo.getInstance().getBuild().asString() + "/" + pluginVersion();
+        
+        private static String pluginVersion() {
+            IdeaPluginDescriptor plugin = PluginManagerCore.getPlugin(PluginId.getId("me.seungjun.colorfuldelimiter"));
+            return plugin != null ? plugin.getVersion() : "";
+        }
+    }
+    
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+        if (result == null) {
+            return;
+        }
+        
+        int offset = event.getOffset();
+        int suffix = event.getDocument().getTextLength() - (offset + event.getNewLength());
+        synchronized (dirtyLock) {
+            dirtyStart = Math.min(dirtyStart, offset);
+            cleanSuffix = Math.min(cleanSuffix, suffix);
+            editCount++;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.CommonDataKeys;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.ScrollType;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Moves each caret to the opening or closing delimiter of the innermost pair around it. The caret ends
+ * up outside the pair, so invoking the action again moves on to the enclosing pair.
+ */
+public abstract class JumpToEnclosingDelimiterAction extends AnAction implements DumbAware {
+    
+    private final boolean toOpen;
+    
+    JumpToEnclosingDelimiterAction(boolean toOpen) {
+        this.toOpen = toOpen;
+    }
+    
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+    
+    @Override
+    public void update(@NotNull AnActionEvent event) {
+        event.getPresentation().setEnabled(event.getData(CommonDataKeys.EDITOR) != null
+            && event.getData(CommonDataKeys.PSI_FILE) != null);
+    }
+    
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        Project project = event.getProject();
+        Editor editor = event.getData(CommonDataKeys.EDITOR);
+        PsiFile file = event.getData(CommonDataKeys.PSI_FILE);
+        if (project == null || editor == null || file == null) {
+            return;
+        }
+        Document document = editor.getDocument();
+        DelimiterMatcher.ScanResult result = DelimiterMatchCache.getCurrentScanResult(document);
+        if (result != null && result.hasNestingIndex()) {
+            jump(editor, result.getNestingIndex());
+            return;
+        }
+        
+        // Scanning or indexing a large file would freeze the editor
+        PsiDocumentManager.getInstance(project).commitDocument(document);
+        long stamp = document.getModificationStamp();
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Finding enclosing delimiters", true) {
+            private NestingIndex index;
+            
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                index = ReadAction.nonBlocking(() -> DelimiterMatchCache.getNestingIndex(file))
+                    .wrapProgress(indicator)
+                    .executeSynchronously();
+            }
+            
+            @Override
+            public void onSuccess() {
+                // Carets are only moved by an index of the text they are in
+                if (!editor.isDisposed() && document.getModificationStamp() == stamp) {
+                    jump(editor, index);
+                }
+            }
+        });
+    }
+    
+    private void jump(Editor editor, NestingIndex index) {
+        editor.getCaretModel().runForEachCaret(caret -> {
+            int pair = index.enclosing(caret.getOffset());
+            if (pair != NestingIndex.NONE) {
+                caret.removeSelection();
+                caret.moveToOffset(toOpen ? index.getOpenOffset(pair) : index.getCloseOffset(pair) + 1);
+            }
+        });
+        editor.getScrollingModel().scrollToCaret(ScrollType.MAKE_VISIBLE);
+    }
+    
+    public static class Open extends JumpToEnclosingDelimiterAction {
+        public Open() {
+            super(true);
+        }
+    }
+    
+    public static class Close extends JumpToEnclosingDelimiterAction {
+        public Close() {
+            super(false);
+        }
+    }
+}
\ No newline at end of file
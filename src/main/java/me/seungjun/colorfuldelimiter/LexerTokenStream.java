@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.lang.Language;
+import com.intellij.lang.LanguageParserDefinitions;
+import com.intellij.lang.ParserDefinition;
+import com.intellij.lexer.Lexer;
+import com.intellij.openapi.editor.DefaultLanguageHighlighterColors;
+import com.intellij.openapi.editor.colors.TextAttributesKey;
+import com.intellij.openapi.fileTypes.PlainTextLanguage;
+import com.intellij.openapi.fileTypes.SyntaxHighlighter;
+import com.intellij.openapi.fileTypes.SyntaxHighlighterFactory;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.tree.IElementType;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token stream over the language's highlighting lexer, the one the editor's syntax highlighting runs.
+ * Token types are classified as comments or strings from the parser definition and the highlighter's
+ * color keys. Like the editor's highlighter, a stream can start at any token where the lexer was in its
+ * initial state, so an edit is only lexed again from the last such token before it.
+ */
+public class LexerTokenStream implements DelimiterTokenStream {
+    
+    // The state Lexer.start(CharSequence) starts in
+    private static final int INITIAL_STATE = 0;
+    
+    private final PsiFile file;
+    private final Lexer lexer;
+    private final Map<IElementType, Integer> kinds = new HashMap<>();
+    private final Map<Language, SyntaxHighlighter> highlighters = new HashMap<>();
+    
+    private LexerTokenStream(PsiFile file, Lexer lexer) {
+        this.file = file;
+        this.lexer = lexer;
+    }
+    
+    /**
+     * Returns the tokens of the text from the offset, which is 0 or the start of a token at a restart point,
+     * or null for plain text and languages without a highlighting lexer.
+     */
+    public static LexerTokenStream create(PsiFile file, CharSequence text, int offset) {
+        Language language = file.getLanguage();
+        if (language == PlainTextLanguage.INSTANCE) {
+            return null;
+        }
+        
+        SyntaxHighlighter highlighter = SyntaxHighlighterFactory.getSyntaxHighlighter(language, file.getProject(), file.getVirtualFile());
+        if (highlighter == null) {
+            return null;
+        }
+        Lexer lexer = highlighter.getHighlightingLexer();
+        lexer.start(text, offset, text.length(), INITIAL_STATE);
+        return new LexerTokenStream(file, lexer);
+    }
+    
+    /**
+     * Returns whether {@link #create} finds tokens for the file.
+     */
+    public static boolean isSupported(PsiFile file) {
+        Language language = file.getLanguage();
+        return language != PlainTextLanguage.INSTANCE
+            && SyntaxHighlighterFactory.getSyntaxHighlighter(language, file.getProject(), file.getVirtualFile()) != null;
+    }
+    
+    @Override public boolean atEnd() { return lexer.getTokenType() == null; }
+    @Override public int getStart() { return lexer.getTokenStart(); }
+    @Override public int getEnd() { return lexer.getTokenEnd(); }
+    @Override public void advance() { lexer.advance(); }
+    
+    @Override
+    public boolean isRestartPoint() {
+        return lexer.getState() == INITIAL_STATE;
+    }
+    
+    @Override
+    public int getKind() {
+        IElementType type = lexer.getTokenType();
+        Integer kind = kinds.get(type);
+        if (kind == null) {
+            kind = classify(type);
+            kinds.put(type, kind);
+        }
+        return kind;
+    }
+    
+    private int classify(IElementType type) {
+        ParserDefinition definition = LanguageParserDefinitions.INSTANCE.forLanguage(type.getLanguage());
+        if (definition != null) {
+            if (definition.getCommentTokens().contains(type)) {
+                return COMMENT;
+            }
+            if (definition.getStringLiteralElements().contains(type)) {
+                return STRING;
+            }
+        }
+        
+        SyntaxHighlighter highlighter = highlighters.computeIfAbsent(type.getLanguage(),
+            language -> SyntaxHighlighterFactory.getSyntaxHighlighter(language, file.getProject(), file.getVirtualFile()));
+        if (highlighter == null) {
+            return CODE;
+        }
+        for (TextAttributesKey key : highlighter.getTokenHighlights(type)) {
+            for (; key != null; key = key.getFallbackAttributeKey()) {
+                if (key == DefaultLanguageHighlighterColors.LINE_COMMENT
+                    || key == DefaultLanguageHighlighterColors.BLOCK_COMMENT
+                    || key == DefaultLanguageHighlighterColors.DOC_COMMENT) {
+                    return COMMENT;
+                }
+                if (key == DefaultLanguageHighlighterColors.STRING
+                    || key == DefaultLanguageHighlighterColors.VALID_STRING_ESCAPE
+                    || key == DefaultLanguageHighlighterColors.INVALID_STRING_ESCAPE) {
+                    return STRING;
+                }
+            }
+        }
+        return CODE;
+    }
+}
\ No newline at end of file
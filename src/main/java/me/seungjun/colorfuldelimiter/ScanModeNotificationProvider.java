@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.options.ShowSettingsUtil;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.ui.EditorNotificationPanel;
+import com.intellij.ui.EditorNotificationProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.function.Function;
+
+/**
+ * Shows a banner above editors whose delimiters are colored in a reduced {@link ScanMode}.
+ */
+public class ScanModeNotificationProvider implements EditorNotificationProvider {
+    
+    @Override
+    public @Nullable Function<? super FileEditor, ? extends JComponent> collectNotificationData(@NotNull Project project,
+                                                                                                 @NotNull VirtualFile file) {
+        Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+        if (document == null) {
+            return null;
+        }
+        ScanMode mode = DelimiterMatchCache.getScanMode(document);
+        if (mode == null || mode == ScanMode.FULL) {
+            return null;
+        }
+        
+        return fileEditor -> {
+            EditorNotificationPanel panel = new EditorNotificationPanel(fileEditor, EditorNotificationPanel.Status.Info);
+            panel.setText("Colorful Delimiter: " + mode.getDescription());
+            panel.createActionLabel("Settings", () ->
+                ShowSettingsUtil.getInstance().showSettingsDialog(project, ColorfulDelimiterConfigurable.class));
+            return panel;
+        };
+    }
+}
\ No newline at end of file
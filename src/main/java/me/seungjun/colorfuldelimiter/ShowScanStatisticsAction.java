@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.components.JBTextArea;
+import com.intellij.util.ui.JBUI;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+
+/**
+ * Shows the time and allocation of each coloring phase this session, by language, and writes them
+ * to the IDE log so they can be attached to a report.
+ */
+public class ShowScanStatisticsAction extends AnAction implements DumbAware {
+    
+    private static final Logger LOG = Logger.getInstance(ShowScanStatisticsAction.class);
+    
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+    
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent event) {
+        String report = ScanMetrics.getInstance().report();
+        LOG.info("Colorful Delimiter statistics:\n" + report);
+        new StatisticsDialog(report).show();
+    }
+    
+    private static class StatisticsDialog extends DialogWrapper {
+        private final JBTextArea textArea;
+        
+        StatisticsDialog(String report) {
+            super(true);
+            textArea = new JBTextArea(report);
+            textArea.setEditable(false);
+            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+            setTitle("Colorful Delimiter Statistics");
+            setOKButtonText("Close");
+            init();
+        }
+        
+        @Override
+        protected @Nullable JComponent createCenterPanel() {
+            JBScrollPane scrollPane = new JBScrollPane(textArea);
+            scrollPane.setPreferredSize(JBUI.size(900, 300));
+            return scrollPane;
+        }
+        
+        @Override
+        protected Action @NotNull [] createActions() {
+            Action reset = new AbstractAction("Reset") {
+                @Override
+                public void actionPerformed(ActionEvent event) {
+                    ScanMetrics.getInstance().reset();
+                    textArea.setText(ScanMetrics.getInstance().report());
+                }
+            };
+            return new Action[] {reset, getOKAction()};
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2025 Seungjun Lee
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package me.seungjun.colorfuldelimiter;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.event.DocumentListener;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.openapi.editor.event.EditorFactoryListener;
+import com.intellij.openapi.editor.event.VisibleAreaEvent;
+import com.intellij.openapi.editor.event.VisibleAreaListener;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.SingleRootFileViewProvider;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Colors delimiters in files too large for the IDE to parse, which get no annotations at all. The file
+ * is indexed once by {@link StreamingMatcher} on a pooled thread, then only the lines around the visible
+ * area are scanned from the mapped file, again whenever scrolling leaves them, and shown through the
+ * editor's own {@link DelimiterMarkupLayer}, so split views of the file each keep their window. Edited
+ * text is left uncolored until it is saved and indexed again.
+ */
+public class StreamingColorizer implements EditorFactoryListener {
+    
+    private static final Logger LOG = Logger.getInstance(StreamingColorizer.class);
+    
+    private static final Key<Viewer> VIEWER_KEY = Key.create("ColorfulDelimiter.StreamingViewer");
+    private static final Key<CachedIndex> INDEX_KEY = Key.create("ColorfulDelimiter.StreamingIndex");
+    
+    // Most characters scanned for one window, for files with very long lines
+    private static final int MAX_WINDOW = 1 << 20;
+    
+    @Override
+    public void editorCreated(@NotNull EditorFactoryEvent event) {
+        Editor editor = event.getEditor();
+        Project project = editor.getProject();
+        if (project == null || project.isDefault()) {
+            return;
+        }
+        VirtualFile file = FileDocumentManager.getInstance().getFile(editor.getDocument());
+        if (file == null || !isStreamed(file)) {
+            return;
+        }
+        Viewer viewer = new Viewer(editor, project, file);
+        editor.putUserData(VIEWER_KEY, viewer);
+        editor.getScrollingModel().addVisibleAreaListener(viewer, viewer);
+        editor.getDocument().addDocumentListener(viewer, viewer);
+        viewer.update();
+    }
+    
+    @Override
+    public void editorReleased(@NotNull EditorFactoryEvent event) {
+        Editor editor = event.getEditor();
+        Viewer viewer = editor.getUserData(VIEWER_KEY);
+        if (viewer == null) {
+            return;
+        }
+        editor.putUserData(VIEWER_KEY, null);
+        Disposer.dispose(viewer);
+        DelimiterMarkupLayer.clear(editor);
+        // The index is shared by every editor of the file
+        for (Editor other : EditorFactory.getInstance().getEditors(editor.getDocument())) {
+            if (other != editor && other.getUserData(VIEWER_KEY) != null) {
+                return;
+            }
+        }
+        viewer.file.putUserData(INDEX_KEY, null);
+    }
+    
+    private static boolean isStreamed(VirtualFile file) {
+        if (!file.isInLocalFileSystem() || !SingleRootFileViewProvider.isTooLargeForIntelligence(file)) {
+            return false;
+        }
+        // Offsets are counted from the bytes, which works for UTF-8 and single-byte charsets only
+        Charset charset = file.getCharset();
+        return charset.equals(StandardCharsets.UTF_8)
+            || charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1;
+    }
+    
+    private static DelimiterProfile profileOf(VirtualFile file) {
+        String extension = file.getExtension();
+        DelimiterProfile profile = extension != null ? DelimiterProfile.forExtension(extension.toLowerCase(Locale.ROOT))
+            : null;
+        // Files this large without a known language are mostly logs and data
+        return profile != null ? profile : DelimiterProfile.PROSE;
+    }
+    
+    // Called on the event dispatch thread only
+    private static CompletableFuture<StreamingMatcher.Index> getIndex(VirtualFile file) {
+        long stamp = file.getModificationStamp();
+        CachedIndex cached = file.getUserData(INDEX_KEY);
+        if (cached == null || cached.modificationStamp != stamp) {
+            cached = new CachedIndex(stamp, CompletableFuture.supplyAsync(() -> buildIndex(file),
+                AppExecutorUtil.getAppExecutorService()));
+            file.putUserData(INDEX_KEY, cached);
+        }
+        return cached.index;
+    }
+    
+    private static StreamingMatcher.Index buildIndex(VirtualFile file) {
+        ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.STREAM_INDEX,
+            file.getFileType().getName(), (int) Math.min(file.getLength(), Integer.MAX_VALUE));
+        byte[] bom = file.getBOM();
+        try (FileChannel channel = FileChannel.open(file.toNioPath(), StandardOpenOption.READ)) {
+            StreamingMatcher.Index index = StreamingMatcher.index(channel, profileOf(file),
+                file.getCharset().equals(StandardCharsets.UTF_8), bom != null ? bom.length : 0,
+                CancellationCheck.NONE);
+            // Indexing only tracks depths, pairs are matched per window
+            sample.finish(null, 0, 0);
+            return index;
+        } catch (IOException e) {
+            LOG.info("Cannot index " + file.getPath(), e);
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static class CachedIndex {
+        private final long modificationStamp;
+        private final CompletableFuture<StreamingMatcher.Index> index;
+        
+        CachedIndex(long modificationStamp, CompletableFuture<StreamingMatcher.Index> index) {
+            this.modificationStamp = modificationStamp;
+            this.index = index;
+        }
+    }
+    
+    private static class Viewer implements VisibleAreaListener, DocumentListener, Disposable {
+        private final Editor editor;
+        private final Project project;
+        private final VirtualFile file;
+        // Characters colored by the last window, empty when nothing is shown
+        private int shownStart;
+        private int shownEnd;
+        private int shownColorCount;
+        // Waiting for the index or a window, which update again when they are done
+        private boolean busy;
+        private volatile boolean disposed;
+        
+        Viewer(Editor editor, Project project, VirtualFile file) {
+            this.editor = editor;
+            this.project = project;
+            this.file = file;
+        }
+        
+        @Override
+        public void visibleAreaChanged(@NotNull VisibleAreaEvent event) {
+            update();
+        }
+        
+        @Override
+        public void documentChanged(@NotNull DocumentEvent event) {
+            // The index is of the file on disk, so edited text is not colored until it is saved
+            clear();
+        }
+        
+        private void update() {
+            if (disposed || busy) {
+                return;
+            }
+            Document document = editor.getDocument();
+            if (!ColorfulDelimiterSettings.getInstance().getState().streamLargeFiles
+                || FileDocumentManager.getInstance().isDocumentUnsaved(document) || document.getTextLength() == 0) {
+                clear();
+                return;
+            }
+            Rectangle area = editor.getScrollingModel().getVisibleArea();
+            if (area.height <= 0) {
+                // Not laid out yet, there will be another event
+                return;
+            }
+            int lastLine = document.getLineCount() - 1;
+            int firstVisible = Math.min(editor.xyToLogicalPosition(area.getLocation()).line, lastLine);
+            int lastVisible = Math.min(editor.xyToLogicalPosition(new Point(area.x, area.y + area.height)).line,
+                lastLine);
+            int topLeft = editor.logicalPositionToOffset(editor.xyToLogicalPosition(area.getLocation()));
+            int visibleStart = Math.max(document.getLineStartOffset(firstVisible), topLeft - MAX_WINDOW / 4);
+            int visibleEnd = Math.min(document.getLineEndOffset(lastVisible), visibleStart + MAX_WINDOW / 2);
+            int colorCount = ColorScheme.getColorCount();
+            if (visibleStart >= shownStart && visibleEnd <= shownEnd && colorCount == shownColorCount) {
+                return;
+            }
+            
+            CompletableFuture<StreamingMatcher.Index> future = getIndex(file);
+            if (!future.isDone()) {
+                busy = true;
+                future.whenComplete((index, error) -> ApplicationManager.getApplication().invokeLater(() -> {
+                    busy = false;
+                    update();
+                }, project.getDisposed()));
+                return;
+            }
+            StreamingMatcher.Index index = future.isCompletedExceptionally() ? null : future.join();
+            if (index == null || index.getCharLength() != document.getTextLength()) {
+                // Changed on disk since it was loaded, or decoded differently than counted
+                clear();
+                return;
+            }
+            
+            // One more screen above and below, so short scrolls don't scan again
+            int screen = lastVisible - firstVisible + 1;
+            int start = Math.max(document.getLineStartOffset(Math.max(firstVisible - screen, 0)),
+                visibleStart - MAX_WINDOW / 4);
+            int end = Math.min(document.getLineEndOffset(Math.min(lastVisible + screen, lastLine)),
+                visibleEnd + MAX_WINDOW / 4);
+            long stamp = document.getModificationStamp();
+            String language = file.getFileType().getName();
+            busy = true;
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                DelimiterIndex window = scanWindow(index, start, end, colorCount, language);
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    busy = false;
+                    if (window == null || disposed || document.getModificationStamp() != stamp) {
+                        return;
+                    }
+                    DelimiterMarkupLayer.update(editor, language, window);
+                    shownStart = start;
+                    shownEnd = end;
+                    shownColorCount = colorCount;
+                    // Scrolled further while the window was scanned
+                    update();
+                }, project.getDisposed());
+            });
+        }
+        
+        private DelimiterIndex scanWindow(StreamingMatcher.Index index, int start, int end, int colorCount,
+                                          String language) {
+            ScanMetrics.Sample sample = ScanMetrics.getInstance().start(ScanMetrics.Phase.STREAM_WINDOW, language,
+                end - start);
+            try (FileChannel channel = FileChannel.open(file.toNioPath(), StandardOpenOption.READ)) {
+                DelimiterIndex window = StreamingMatcher.window(channel, index, start, end, colorCount, () -> {
+                    if (disposed) {
+                        throw new ProcessCanceledException();
+                    }
+                });
+                sample.finish(null, window.size(), 0);
+                return window;
+            } catch (IOException e) {
+                LOG.info("Cannot read " + file.getPath(), e);
+                return null;
+            } catch (ProcessCanceledException e) {
+                return null;
+            }
+        }
+        
+        private void clear() {
+            DelimiterMarkupLayer.clear(editor);
+            shownStart = 0;
+            shownEnd = 0;
+        }
+        
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+}
\ No newline at end of file